@@ -0,0 +1,135 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Keeps track of caches derived from other caches. An edge from an upstream
+ * cache to a dependent cache means the dependent cache must be refreshed only
+ * after the upstream cache has been refreshed. Cycles are rejected when the
+ * dependency is declared.
+ */
+final class CacheDependencyGraph {
+
+	/**
+	 * Cache name to the names of the caches it is computed from
+	 */
+	private final Map<String, Set<String>> upstreamCaches = new ConcurrentHashMap<String, Set<String>>();
+
+	/**
+	 * Cache name to the names of the caches computed from it
+	 */
+	private final Map<String, Set<String>> dependentCaches = new ConcurrentHashMap<String, Set<String>>();
+
+	/**
+	 * Declares that the cache named cacheName is computed from the cache named
+	 * upstreamCacheName.
+	 *
+	 * @param cacheName
+	 * @param upstreamCacheName
+	 * @throws IllegalArgumentException
+	 *             if the dependency would introduce a cycle
+	 */
+	synchronized void addDependency(String cacheName, String upstreamCacheName) {
+		if (cacheName.equals(upstreamCacheName)
+				|| withDependents(Collections.singleton(cacheName)).contains(upstreamCacheName)) {
+			throw new IllegalArgumentException(
+					"Cache [" + cacheName + "] can not depend on [" + upstreamCacheName + "], that forms a cycle");
+		}
+		edges(upstreamCaches, cacheName).add(upstreamCacheName);
+		edges(dependentCaches, upstreamCacheName).add(cacheName);
+	}
+
+	/**
+	 * @param cacheName
+	 * @return names of the caches the named cache is computed from
+	 */
+	Set<String> getUpstream(String cacheName) {
+		Set<String> upstream = upstreamCaches.get(cacheName);
+		return upstream != null ? upstream : Collections.<String> emptySet();
+	}
+
+	/**
+	 * Collects the supplied cache names along with every cache directly or
+	 * transitively computed from them.
+	 *
+	 * @param cacheNames
+	 * @return
+	 */
+	Set<String> withDependents(Collection<String> cacheNames) {
+		Set<String> closure = new LinkedHashSet<String>(cacheNames);
+		Deque<String> pending = new ArrayDeque<String>(cacheNames);
+		while (!pending.isEmpty()) {
+			Set<String> dependents = dependentCaches.get(pending.pop());
+			if (dependents != null) {
+				for (String dependent : dependents) {
+					if (closure.add(dependent)) {
+						pending.push(dependent);
+					}
+				}
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Orders the supplied cache names so that every cache appears after all the
+	 * caches, within the supplied set, that it is computed from.
+	 *
+	 * @param cacheNames
+	 * @return
+	 */
+	List<String> topologicalOrder(Set<String> cacheNames) {
+		Map<String, Integer> pendingUpstream = new HashMap<String, Integer>(cacheNames.size());
+		Deque<String> ready = new ArrayDeque<String>();
+		for (String cacheName : cacheNames) {
+			int count = 0;
+			for (String upstream : getUpstream(cacheName)) {
+				if (cacheNames.contains(upstream)) {
+					count++;
+				}
+			}
+			pendingUpstream.put(cacheName, count);
+			if (count == 0) {
+				ready.add(cacheName);
+			}
+		}
+		List<String> ordered = new ArrayList<String>(cacheNames.size());
+		while (!ready.isEmpty()) {
+			String cacheName = ready.poll();
+			ordered.add(cacheName);
+			Set<String> dependents = dependentCaches.get(cacheName);
+			if (dependents != null) {
+				for (String dependent : dependents) {
+					Integer count = pendingUpstream.get(dependent);
+					if (count != null) {
+						pendingUpstream.put(dependent, count - 1);
+						if (count == 1) {
+							ready.add(dependent);
+						}
+					}
+				}
+			}
+		}
+		return ordered;
+	}
+
+	private static Set<String> edges(Map<String, Set<String>> adjacency, String cacheName) {
+		Set<String> edges = adjacency.get(cacheName);
+		if (edges == null) {
+			edges = new CopyOnWriteArraySet<String>();
+			adjacency.put(cacheName, edges);
+		}
+		return edges;
+	}
+}
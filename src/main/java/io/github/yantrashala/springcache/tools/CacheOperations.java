@@ -1,6 +1,8 @@
 package io.github.yantrashala.springcache.tools;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.function.Predicate;
 
 /**
  * Provides methods to refresh cached objects.
@@ -18,19 +20,68 @@ public interface CacheOperations {
 	Collection<String> getCacheNames();
 
 	/**
-	 * Refreshes caches corresponding to the supplied cache names array.
+	 * Refreshes caches corresponding to the supplied cache names array. Caches
+	 * derived from them are refreshed afterwards, in dependency order.
 	 * 
 	 * @param cacheNames
 	 */
 	void refreshCaches(String... cacheNames);
 
 	/**
-	 * Refreshes caches corresponding to the supplied cache name.
+	 * Refreshes caches corresponding to the supplied cache name. Caches derived
+	 * from it are refreshed once it completes.
 	 * 
 	 * @param cacheName
 	 */
 	void refreshCache(String cacheName);
 
+	/**
+	 * Refreshes only the entries of the named cache with the supplied keys.
+	 * Costs one lookup per key regardless of the cache size. Caches derived
+	 * from the named cache are not refreshed. When the refresh is partitioned,
+	 * the keys owned by other members are not refreshed, only their near cache
+	 * copies are dropped.
+	 * 
+	 * @param cacheName
+	 * @param keys
+	 *            keys as generated by the configured KeyGenerator
+	 */
+	void refreshCacheKeys(String cacheName, Collection<?> keys);
+
+	/**
+	 * Refreshes the entries of the named cache whose keys match the filter.
+	 * Caches derived from the named cache are not refreshed. When the refresh
+	 * is partitioned, the keys owned by other members are not refreshed, only
+	 * their near cache copies are dropped.
+	 * 
+	 * @param cacheName
+	 * @param keyFilter
+	 */
+	void refreshCacheMatchingKeys(String cacheName, Predicate<Object> keyFilter);
+
+	/**
+	 * Refreshes the entries of the named cache whose invocation arguments match
+	 * the filter. Caches derived from the named cache are not refreshed. When
+	 * the refresh is partitioned, the keys owned by other members are not
+	 * refreshed, only their near cache copies are dropped.
+	 * 
+	 * @param cacheName
+	 * @param argumentsFilter
+	 *            receives the registered arguments, null for methods without
+	 *            arguments
+	 */
+	void refreshCacheMatchingArguments(String cacheName, Predicate<Object[]> argumentsFilter);
+
+	/**
+	 * Refreshes every entry cached by invocations of the supplied method, or of
+	 * its implementations when it is declared on an interface or super class.
+	 * When the refresh is partitioned, the keys owned by other members are not
+	 * refreshed, only their near cache copies are dropped.
+	 * 
+	 * @param targetMethod
+	 */
+	void refreshMethod(Method targetMethod);
+
 	/**
 	 * Refreshes all caches configured in the application
 	 * 
@@ -38,6 +89,27 @@ public interface CacheOperations {
 	 */
 	void refreshAllCaches();
 
+	/**
+	 * Refreshes, in every cache with a staleness target, the entries that have
+	 * gone longer than the target without a successful refresh. Meant to be
+	 * scheduled more often than full refreshes, so that caches falling behind
+	 * their target catch up without refreshing the fresh entries again. When
+	 * the refresh is partitioned, only the entries owned by this member are
+	 * considered.
+	 */
+	void refreshStaleEntries();
+
+	/**
+	 * Reports how long ago the entries of the named cache were last refreshed
+	 * successfully, against the staleness target of the cache. When the
+	 * refresh is partitioned, only the entries owned by this member are
+	 * reported, the others being refreshed by their owners.
+	 * 
+	 * @param cacheName
+	 * @return
+	 */
+	StalenessReport getStalenessReport(String cacheName);
+
 	/**
 	 * Clears all values from the named caches
 	 * 
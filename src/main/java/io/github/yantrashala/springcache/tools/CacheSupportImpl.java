@@ -1,22 +1,52 @@
 package io.github.yantrashala.springcache.tools;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.util.MethodInvoker;
+import org.springframework.util.ObjectUtils;
 
 /**
  * Registers invocations of methods with @Cacheable annotations.
@@ -26,7 +56,14 @@ import org.springframework.util.MethodInvoker;
  * @version 1.0
  */
 @Component("cacheSupport")
-public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
+public class CacheSupportImpl
+		implements CacheOperations, InvocationRegistry, ApplicationContextAware, ApplicationListener<ContextClosedEvent> {
+
+	/**
+	 * Marks the end of a refresh for the threads running its stages
+	 */
+	private static final Runnable NO_MORE_STAGES = () -> {
+	};
 
 	/**
 	 * Maintains Sets of CachedInvocation objects corresponding to each cache
@@ -37,10 +74,81 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 	private Map<String, Set<CachedInvocation>> cacheToInvocationsMap;
 
 	/**
-	 * Avoid concurrent modification issues by using CopyOnWriteArraySet that
-	 * copies the internal array on every modification
+	 * Avoid concurrent modification issues by using a set backed by a
+	 * ConcurrentHashMap, whose iterators never throw
+	 * ConcurrentModificationException. Unlike a CopyOnWriteArraySet, adding
+	 * does not scan or copy the existing invocations, which matters as every
+	 * intercepted call registers its invocation.
+	 */
+	private final Set<CachedInvocation> allInvocations = newInvocationSet();
+
+	/**
+	 * Secondary index, for every cache, of its invocations by their cache key.
+	 * Refreshes specific keys without scanning the caches, and keeps a single
+	 * invocation per entry as key generators may ignore the method and target
+	 * bean.
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<Object, CachedInvocation>> cacheToKeyedInvocations = new ConcurrentHashMap<String, ConcurrentMap<Object, CachedInvocation>>();
+
+	/**
+	 * Secondary index of the registered invocations by the identity hash code
+	 * of their target bean, to purge them when the bean is destroyed. Does not
+	 * reference the beans themselves.
+	 */
+	private final ConcurrentMap<Integer, Set<CachedInvocation>> targetToInvocations = new ConcurrentHashMap<Integer, Set<CachedInvocation>>();
+
+	/**
+	 * Receives the references of target beans that have been garbage collected
+	 */
+	private final ReferenceQueue<Object> collectedTargets = new ReferenceQueue<Object>();
+
+	private ApplicationContext applicationContext;
+
+	/**
+	 * Secondary index of the registered invocations by the method they invoke
+	 */
+	private final ConcurrentMap<Method, Set<CachedInvocation>> methodToInvocations = new ConcurrentHashMap<Method, Set<CachedInvocation>>();
+
+	/**
+	 * Dependencies between caches, used to refresh derived caches only after
+	 * the caches they are computed from
 	 */
-	private final Set<CachedInvocation> allInvocations = new CopyOnWriteArraySet<CacheSupportImpl.CachedInvocation>();
+	private final CacheDependencyGraph dependencyGraph = new CacheDependencyGraph();
+
+	/**
+	 * Cache name to the maximum time its entries should go without a
+	 * successful refresh
+	 */
+	private final Map<String, Long> stalenessTargets = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Delivers refresh events to the listeners, null until a listener is added
+	 */
+	private volatile RefreshEventDispatcher eventDispatcher;
+
+	private int refreshEventBufferSize = 8192;
+
+	private int refreshEventBatchSize = 256;
+
+	private long refreshEventPublishTimeoutMillis;
+
+	/**
+	 * Runs the refresh of each cache. Defaults to the calling thread, supply a
+	 * thread pool to refresh independent caches in parallel.
+	 */
+	private Executor refreshExecutor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/**
+	 * Maximum number of threads refreshing independent caches together, and
+	 * re-executing the invocations of a single cache when it is refreshed by
+	 * generation swap
+	 */
+	private int refreshParallelism = Runtime.getRuntime().availableProcessors();
 
 	@Autowired
 	private CacheManager cacheManager;
@@ -48,39 +156,282 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 	@Autowired
 	private KeyGenerator keyGenerator;
 
+	/**
+	 * Optional, shares the refresh work among the cluster members when present
+	 */
+	@Autowired(required = false)
+	private ClusterCoordinator clusterCoordinator;
+
+	/**
+	 * Key ownership computed from the cluster membership seen at the start of
+	 * the latest refresh, null when not partitioning
+	 */
+	private volatile ConsistentHashRing partition;
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void registerInvocation(Object targetBean, Method targetMethod, Object[] arguments,
 			Set<String> annotatedCacheNames) {
+		purgeCollectedTargets();
 		Object key = keyGenerator.generate(targetBean, targetMethod, arguments);
-		final CachedInvocation invocation = new CachedInvocation(key, targetBean, targetMethod, arguments);
-		allInvocations.add(invocation);
+		// The same call cached in several caches shares one invocation
+		CachedInvocation invocation = null;
 		for (final String cacheName : annotatedCacheNames) {
-			cacheToInvocationsMap.get(cacheName).add(invocation);
+			final Map<Object, CachedInvocation> keyedInvocations = keyedInvocationsOf(cacheName);
+			final CachedInvocation registered = keyedInvocations != null ? keyedInvocations.get(key) : null;
+			if (registered != null && registered.isInvocationOf(targetBean, targetMethod)) {
+				invocation = registered;
+				break;
+			}
+		}
+		if (invocation == null) {
+			invocation = new CachedInvocation(key, targetBean, targetMethod, arguments, collectedTargets);
+		}
+		for (final String cacheName : annotatedCacheNames) {
+			bindInvocation(invocation, cacheName);
+		}
+	}
+
+	/**
+	 * Makes the invocation refresh the entry of its key in the named cache. It
+	 * takes over from the invocation of another method or bean registered for
+	 * the same key, so that the entry stays refreshed by the latest bean
+	 * backing it when an earlier one is destroyed.
+	 * 
+	 * @param invocation
+	 * @param cacheName
+	 */
+	private void bindInvocation(final CachedInvocation invocation, final String cacheName) {
+		final ConcurrentMap<Object, CachedInvocation> keyedInvocations = keyedInvocationsOf(cacheName);
+		if (keyedInvocations == null || keyedInvocations.get(invocation.getKey()) == invocation) {
+			return;
+		}
+		final Set<CachedInvocation> cacheInvocations = cacheToInvocationsMap.get(cacheName);
+		keyedInvocations.compute(invocation.getKey(), (key, registered) -> {
+			if (registered == invocation || invocation.equals(registered)) {
+				// Registered concurrently for the same call
+				return registered;
+			}
+			if (registered != null) {
+				cacheInvocations.remove(registered);
+				if (registered.removeTargetCache(cacheName)) {
+					unindexInvocation(registered);
+				}
+			}
+			cacheInvocations.add(invocation);
+			if (invocation.addTargetCache(cacheManager.getCache(cacheName))) {
+				allInvocations.add(invocation);
+				invocationsOf(invocation.getTargetMethod()).add(invocation);
+				invocationsOfTarget(invocation.getTargetIdentity()).add(invocation);
+			}
+			return invocation;
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void unregisterInvocations(Object targetBean) {
+		final Set<CachedInvocation> invocations = targetToInvocations.get(System.identityHashCode(targetBean));
+		if (invocations != null) {
+			for (final CachedInvocation invocation : invocations) {
+				if (invocation.getTargetBean() == targetBean) {
+					removeInvocation(invocation);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Purges the invocations of the beans of a closing application context. All
+	 * invocations are purged when the context of this registry closes, those
+	 * of the singleton beans of the closing context otherwise, as child context
+	 * events reach the parent contexts.
+	 * 
+	 * @param event
+	 */
+	@Override
+	public void onApplicationEvent(ContextClosedEvent event) {
+		final ApplicationContext closingContext = event.getApplicationContext();
+		if (closingContext == applicationContext) {
+			unregisterAllInvocations();
+		} else if (closingContext instanceof ConfigurableApplicationContext) {
+			final ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) closingContext)
+					.getBeanFactory();
+			for (final String beanName : beanFactory.getSingletonNames()) {
+				final Object bean = beanFactory.getSingleton(beanName);
+				if (bean != null) {
+					unregisterInvocations(ultimateTarget(bean));
+				}
+			}
 		}
 	}
 
+	/**
+	 * Invocations are registered with the target of the AOP proxies, while
+	 * contexts hold the proxies.
+	 * 
+	 * @param bean
+	 * @return
+	 */
+	static Object ultimateTarget(Object bean) {
+		Object target = bean;
+		Object unwrapped;
+		while ((unwrapped = AopProxyUtils.getSingletonTarget(target)) != null) {
+			target = unwrapped;
+		}
+		return target;
+	}
+
+	private void unregisterAllInvocations() {
+		for (final CachedInvocation invocation : allInvocations) {
+			removeInvocation(invocation);
+		}
+	}
+
+	/**
+	 * Purges the invocations whose target beans have been garbage collected.
+	 */
+	private void purgeCollectedTargets() {
+		Reference<?> collected;
+		while ((collected = collectedTargets.poll()) != null) {
+			removeInvocation(((TargetReference) collected).invocation);
+		}
+	}
+
+	/**
+	 * Removes the invocation from the registry and all its indexes. The values
+	 * it cached are left in the caches, they are no longer refreshed.
+	 * 
+	 * @param invocation
+	 */
+	private void removeInvocation(final CachedInvocation invocation) {
+		for (final Cache cache : invocation.getTargetCaches()) {
+			final ConcurrentMap<Object, CachedInvocation> keyedInvocations = cacheToKeyedInvocations
+					.get(cache.getName());
+			final Set<CachedInvocation> cacheInvocations = cacheToInvocationsMap.get(cache.getName());
+			if (keyedInvocations != null && cacheInvocations != null) {
+				keyedInvocations.computeIfPresent(invocation.getKey(), (key, registered) -> {
+					if (registered != invocation) {
+						return registered;
+					}
+					cacheInvocations.remove(invocation);
+					return null;
+				});
+			}
+		}
+		unindexInvocation(invocation);
+	}
+
+	/**
+	 * Removes the invocation from the indexes spanning all caches.
+	 * 
+	 * @param invocation
+	 */
+	private void unindexInvocation(CachedInvocation invocation) {
+		final Set<CachedInvocation> methodInvocations = methodToInvocations.get(invocation.getTargetMethod());
+		if (methodInvocations != null) {
+			methodInvocations.remove(invocation);
+		}
+		final Set<CachedInvocation> targetInvocations = targetToInvocations.get(invocation.getTargetIdentity());
+		if (targetInvocations != null) {
+			targetInvocations.remove(invocation);
+			if (targetInvocations.isEmpty()) {
+				targetToInvocations.remove(invocation.getTargetIdentity(), targetInvocations);
+			}
+		}
+		allInvocations.remove(invocation);
+	}
+
 	/**
 	 * Creates a MethodInvoker instance from the cached invocation object and
-	 * invokes it to get the return value
+	 * invokes it on the target bean to get the return value
 	 * 
 	 * @param invocation
+	 * @param targetBean
+	 *            the target bean of the invocation, still referenced by the
+	 *            caller
 	 * @return Return value resulted from the method invocation
 	 * @throws NoSuchMethodException
 	 * @throws ClassNotFoundException
 	 * @throws IllegalAccessException
 	 * @throws InvocationTargetException
 	 */
-	private Object execute(CachedInvocation invocation)
+	private Object execute(CachedInvocation invocation, Object targetBean)
 			throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+		invocation.lastAttemptMillis = System.currentTimeMillis();
 		final MethodInvoker invoker = new MethodInvoker();
-		invoker.setTargetObject(invocation.getTargetBean());
+		invoker.setTargetObject(targetBean);
 		invoker.setArguments(invocation.getArguments());
 		invoker.setTargetMethod(invocation.getTargetMethod().getName());
 		invoker.prepare();
-		return invoker.invoke();
+		final Object computed = invoker.invoke();
+		invocation.lastSuccessMillis = System.currentTimeMillis();
+		return computed;
+	}
+
+	/**
+	 * Returns the index entry holding the invocations of the supplied method,
+	 * creating it on first use.
+	 * 
+	 * @param targetMethod
+	 * @return
+	 */
+	private Set<CachedInvocation> invocationsOf(Method targetMethod) {
+		Set<CachedInvocation> invocations = methodToInvocations.get(targetMethod);
+		if (invocations == null) {
+			final Set<CachedInvocation> created = newInvocationSet();
+			invocations = methodToInvocations.putIfAbsent(targetMethod, created);
+			if (invocations == null) {
+				invocations = created;
+			}
+		}
+		return invocations;
+	}
+
+	/**
+	 * Returns the index entry holding the invocations of the named cache by
+	 * their key, creating it on first use.
+	 * 
+	 * @param cacheName
+	 * @return null if the cache is not configured
+	 */
+	private ConcurrentMap<Object, CachedInvocation> keyedInvocationsOf(String cacheName) {
+		ConcurrentMap<Object, CachedInvocation> keyedInvocations = cacheToKeyedInvocations.get(cacheName);
+		if (keyedInvocations == null && cacheToInvocationsMap.containsKey(cacheName)) {
+			final ConcurrentMap<Object, CachedInvocation> created = new ConcurrentHashMap<Object, CachedInvocation>();
+			keyedInvocations = cacheToKeyedInvocations.putIfAbsent(cacheName, created);
+			if (keyedInvocations == null) {
+				keyedInvocations = created;
+			}
+		}
+		return keyedInvocations;
+	}
+
+	/**
+	 * Returns the index entry holding the invocations of the target beans with
+	 * the supplied identity hash code, creating it on first use.
+	 * 
+	 * @param identity
+	 * @return
+	 */
+	private Set<CachedInvocation> invocationsOfTarget(Integer identity) {
+		Set<CachedInvocation> invocations = targetToInvocations.get(identity);
+		if (invocations == null) {
+			final Set<CachedInvocation> created = newInvocationSet();
+			invocations = targetToInvocations.putIfAbsent(identity, created);
+			if (invocations == null) {
+				invocations = created;
+			}
+		}
+		return invocations;
+	}
+
+	private static Set<CachedInvocation> newInvocationSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<CachedInvocation, Boolean>());
 	}
 
 	/**
@@ -95,44 +446,327 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 		cacheToInvocationsMap = new ConcurrentHashMap<String, Set<CachedInvocation>>(
 				cacheManager.getCacheNames().size());
 		for (final String cacheName : cacheManager.getCacheNames()) {
-			cacheToInvocationsMap.put(cacheName, new CopyOnWriteArraySet<CachedInvocation>());
+			cacheToInvocationsMap.put(cacheName, newInvocationSet());
 		}
 	}
 
 	/**
 	 * Uses the supplied cached invocation details to invoke the target method
-	 * with appropriate arguments and update the relevant caches. Updates all
-	 * caches if the cacheName argument is null.
+	 * with appropriate arguments and update the supplied caches.
 	 * 
 	 * @param invocation
-	 * @param cacheNames
+	 * @param caches
+	 *            caches to update, among those the invocation targets
+	 */
+	private void updateCache(CachedInvocation invocation, Cache... caches) {
+		refreshInvocation(invocation, Arrays.asList(caches), null);
+	}
+
+	/**
+	 * Re-executes the invocation and writes its result to the supplied caches,
+	 * publishing the outcome for each of them. Entries owned by another cluster
+	 * member are left to it, and invocations whose target bean is gone are
+	 * unregistered.
+	 * 
+	 * @param invocation
+	 * @param caches
+	 *            caches to update, among those the invocation targets
+	 * @param pass
+	 *            refresh pass whose shadow generations receive the values of
+	 *            generational caches, null to write them directly
 	 */
-	private void updateCache(CachedInvocation invocation, String... cacheNames) {
-		String[] cacheNamesArray = cacheNames;
-		boolean invocationSuccess;
-		Object computed = null;
+	private void refreshInvocation(CachedInvocation invocation, Collection<Cache> caches, RefreshPass pass) {
+		if (!isLocallyOwned(invocation)) {
+			evictNearCopies(invocation);
+			return;
+		}
+		final Object targetBean = invocation.getTargetBean();
+		if (targetBean == null) {
+			removeInvocation(invocation);
+			return;
+		}
+		final Object key = invocation.getKey();
 		try {
-			computed = execute(invocation);
-			invocationSuccess = true;
+			final Object computed = execute(invocation, targetBean);
+			final RefreshEvent.Outcome outcome = invocation.recordValue(computed, eventDispatcher != null);
+			for (final Cache cache : caches) {
+				if (pass != null && cache instanceof GenerationalCache) {
+					pass.generationOf((GenerationalCache) cache).put(key, computed, outcome);
+				} else {
+					putAndPublish(cache, key, computed, outcome);
+				}
+			}
 		} catch (final IllegalAccessException | ClassNotFoundException | NoSuchMethodException
 				| InvocationTargetException e) {
-			invocationSuccess = false;
-			//TODO Invocation failed, log the issue, cache can not be updated
+			// Invocation failed, the cached values are retained
+			for (final Cache cache : caches) {
+				publishRefreshEvent(cache.getName(), key, RefreshEvent.Outcome.FAILED);
+			}
 		}
-		
-		for(String cacheName: cacheManager.getCacheNames()){
-			Cache cache = cacheManager.getCache(cacheName);
+	}
+
+	/**
+	 * Puts the computed value in the cache and publishes the outcome of the
+	 * refresh, if any.
+	 * 
+	 * @param cache
+	 * @param key
+	 * @param computed
+	 * @param outcome
+	 *            null when no listener is registered
+	 */
+	private void putAndPublish(Cache cache, Object key, Object computed, RefreshEvent.Outcome outcome) {
+		cache.put(key, computed);
+		if (outcome != null) {
+			publishRefreshEvent(cache.getName(), key, outcome);
+		}
+	}
+
+	private void publishRefreshEvent(String cacheName, Object key, RefreshEvent.Outcome outcome) {
+		final RefreshEventDispatcher dispatcher = eventDispatcher;
+		if (dispatcher != null) {
+			dispatcher.publish(new RefreshEvent(cacheName, key, outcome));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refreshAllCaches() {
+		refreshInDependencyOrder(cacheToInvocationsMap.keySet());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refreshCache(String cacheName) {
+		refreshInDependencyOrder(Collections.singleton(cacheName));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refreshCaches(String... cacheNames) {
+		refreshInDependencyOrder(Arrays.asList(cacheNames));
+	}
+
+	/**
+	 * Refreshes the named caches along with all the caches derived from them,
+	 * each cache once all the caches it is computed from have been refreshed.
+	 * Invocations shared by several of these caches are executed once for the
+	 * whole refresh. Returns after every cache has been refreshed.
+	 * 
+	 * @param cacheNames
+	 */
+	private void refreshInDependencyOrder(Collection<String> cacheNames) {
+		purgeCollectedTargets();
+		refreshPartition();
+		new RefreshPass(dependencyGraph.withDependents(cacheNames), null).run();
+	}
+
+	/**
+	 * Runs the stage of every cache once the stages of its prerequisites have
+	 * completed, so independent branches of the dependency graph run in
+	 * parallel on up to refreshParallelism workers of the refresh executor. As
+	 * in forEachInParallel, the calling thread runs ready stages as well and
+	 * only waits for stages already picked up by other workers, so it can not
+	 * deadlock when called from a thread of a saturated refresh executor. A
+	 * failed stage skips the stages depending on it, its exception is thrown
+	 * once the others have completed.
+	 * 
+	 * @param ordered
+	 *            cache names, each after its prerequisites
+	 * @param prerequisites
+	 *            names of the caches to complete before the named one, those
+	 *            not ordered are ignored
+	 * @param stage
+	 */
+	private void runInDependencyOrder(List<String> ordered, Function<String, Collection<String>> prerequisites,
+			Consumer<String> stage) {
+		final Map<String, AtomicInteger> pendingPrerequisites = new HashMap<String, AtomicInteger>(ordered.size());
+		final Map<String, List<String>> dependents = new HashMap<String, List<String>>(ordered.size());
+		for (final String cacheName : ordered) {
+			dependents.put(cacheName, new ArrayList<String>());
 		}
-				
-		if (invocationSuccess) {
-			if (cacheNamesArray == null) {
-				cacheNamesArray = cacheToInvocationsMap.keySet().toArray(new String[cacheToInvocationsMap.size()]);
+		final BlockingQueue<Runnable> ready = new LinkedBlockingQueue<Runnable>();
+		final Set<String> skipped = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		final AtomicInteger remaining = new AtomicInteger(ordered.size());
+		final AtomicInteger workers = new AtomicInteger(1);
+		final Map<String, Runnable> stages = new HashMap<String, Runnable>(ordered.size());
+		final Runnable worker = () -> {
+			try {
+				Runnable task;
+				while ((task = ready.poll()) != null) {
+					if (task == NO_MORE_STAGES) {
+						ready.add(task);
+						return;
+					}
+					task.run();
+				}
+			} finally {
+				workers.decrementAndGet();
 			}
-			for (final String cacheName : cacheNamesArray) {
-				if (cacheToInvocationsMap.get(cacheName) != null) {
-					cacheManager.getCache(cacheName).put(invocation.getKey(), computed);
+		};
+		for (final String cacheName : ordered) {
+			stages.put(cacheName, () -> {
+				try {
+					if (!skipped.contains(cacheName)) {
+						stage.accept(cacheName);
+					}
+				} catch (final RuntimeException e) {
+					skipped.add(cacheName);
+					failure.compareAndSet(null, e);
+				} finally {
+					for (final String dependent : dependents.get(cacheName)) {
+						if (skipped.contains(cacheName)) {
+							skipped.add(dependent);
+						}
+						if (pendingPrerequisites.get(dependent).decrementAndGet() == 0) {
+							ready.add(stages.get(dependent));
+							startWorker(worker, workers);
+						}
+					}
+					if (remaining.decrementAndGet() == 0) {
+						ready.add(NO_MORE_STAGES);
+					}
 				}
+			});
+			int count = 0;
+			for (final String upstream : prerequisites.apply(cacheName)) {
+				if (dependents.containsKey(upstream) && !upstream.equals(cacheName)) {
+					dependents.get(upstream).add(cacheName);
+					count++;
+				}
+			}
+			pendingPrerequisites.put(cacheName, new AtomicInteger(count));
+		}
+		if (ordered.isEmpty()) {
+			return;
+		}
+		boolean firstReady = true;
+		for (final String cacheName : ordered) {
+			if (pendingPrerequisites.get(cacheName).get() == 0) {
+				ready.add(stages.get(cacheName));
+				if (!firstReady) {
+					startWorker(worker, workers);
+				}
+				firstReady = false;
+			}
+		}
+		try {
+			Runnable task;
+			while ((task = ready.take()) != NO_MORE_STAGES) {
+				task.run();
 			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	/**
+	 * Hands the worker to the refresh executor, unless refreshParallelism
+	 * workers are already running. The work of a rejected worker is left to
+	 * the running ones.
+	 * 
+	 * @param worker
+	 * @param workers
+	 *            count of the running workers, the calling thread included
+	 */
+	private void startWorker(Runnable worker, AtomicInteger workers) {
+		if (workers.incrementAndGet() > refreshParallelism) {
+			workers.decrementAndGet();
+			return;
+		}
+		try {
+			refreshExecutor.execute(worker);
+		} catch (final RejectedExecutionException e) {
+			workers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Reads the current cluster membership and rebalances the key ownership if
+	 * members joined or left since the previous refresh.
+	 */
+	private void refreshPartition() {
+		final ClusterCoordinator coordinator = clusterCoordinator;
+		if (coordinator == null) {
+			partition = null;
+			return;
+		}
+		final Set<String> members = new HashSet<String>(coordinator.getMembers());
+		final ConsistentHashRing current = partition;
+		if (current == null || !current.getMembers().equals(members)) {
+			partition = new ConsistentHashRing(members);
+		}
+	}
+
+	/**
+	 * @param invocation
+	 * @return true unless partitioning is on and another member owns the key
+	 */
+	private boolean isLocallyOwned(CachedInvocation invocation) {
+		final ConsistentHashRing ring = partition;
+		final ClusterCoordinator coordinator = clusterCoordinator;
+		return ring == null || coordinator == null
+				|| coordinator.getLocalMemberId().equals(ring.ownerOf(invocation.getKey()));
+	}
+
+	/**
+	 * Drops the on-heap copies of an entry refreshed by another cluster member,
+	 * so that readers on this node go back to the remote cache. The owner may
+	 * not have written the new value yet, in which case a reader copies the
+	 * previous value back; the local time to live of the near cache bounds how
+	 * long it is served.
+	 * 
+	 * @param invocation
+	 */
+	private static void evictNearCopies(CachedInvocation invocation) {
+		for (final Cache cache : invocation.getTargetCaches()) {
+			if (cache instanceof NearCache) {
+				((NearCache) cache).evictLocal(invocation.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Applies the action to every invocation using up to refreshParallelism
+	 * workers on the refresh executor. The calling thread works through the
+	 * invocations as well and only waits for those already picked up by other
+	 * workers, so it can not deadlock when called from a task already running
+	 * on a saturated refresh executor.
+	 * 
+	 * @param invocations
+	 * @param action
+	 */
+	private void forEachInParallel(Collection<CachedInvocation> invocations, Consumer<CachedInvocation> action) {
+		final Queue<CachedInvocation> pending = new ConcurrentLinkedQueue<CachedInvocation>(invocations);
+		final CountDownLatch completed = new CountDownLatch(pending.size());
+		final Runnable worker = () -> {
+			CachedInvocation invocation;
+			while ((invocation = pending.poll()) != null) {
+				try {
+					action.accept(invocation);
+				} finally {
+					completed.countDown();
+				}
+			}
+		};
+		for (int i = 1; i < Math.min(refreshParallelism, pending.size()); i++) {
+			refreshExecutor.execute(worker);
+		}
+		worker.run();
+		try {
+			completed.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -140,9 +774,17 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void refreshAllCaches() {
-		for (final CachedInvocation invocation : allInvocations) {
-			updateCache(invocation, (String) null);
+	public void refreshCacheKeys(String cacheName, Collection<?> keys) {
+		refreshPartition();
+		final Map<Object, CachedInvocation> keyedInvocations = keyedInvocationsOf(cacheName);
+		if (keyedInvocations != null) {
+			final Cache cache = cacheManager.getCache(cacheName);
+			for (final Object key : keys) {
+				final CachedInvocation invocation = keyedInvocations.get(key);
+				if (invocation != null) {
+					updateCache(invocation, cache);
+				}
+			}
 		}
 	}
 
@@ -150,24 +792,278 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void refreshCache(String cacheName) {
+	public void refreshCacheMatchingKeys(String cacheName, Predicate<Object> keyFilter) {
+		refreshPartition();
 		if (cacheToInvocationsMap.get(cacheName) != null) {
+			final Cache cache = cacheManager.getCache(cacheName);
 			for (final CachedInvocation invocation : cacheToInvocationsMap.get(cacheName)) {
-				updateCache(invocation, cacheName);
+				if (keyFilter.test(invocation.getKey())) {
+					updateCache(invocation, cache);
+				}
 			}
 		}
-		// Otherwise Wrong cache name, missing spring configuration for the
-		// cache name used in annotations
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void refreshCaches(String... cacheNames) {
-		for (final String cacheName : cacheNames) {
-			refreshCache(cacheName);
+	public void refreshCacheMatchingArguments(String cacheName, Predicate<Object[]> argumentsFilter) {
+		refreshPartition();
+		if (cacheToInvocationsMap.get(cacheName) != null) {
+			final Cache cache = cacheManager.getCache(cacheName);
+			for (final CachedInvocation invocation : cacheToInvocationsMap.get(cacheName)) {
+				if (argumentsFilter.test(invocation.getArguments())) {
+					updateCache(invocation, cache);
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refreshMethod(Method targetMethod) {
+		refreshPartition();
+		for (final Map.Entry<Method, Set<CachedInvocation>> entry : methodToInvocations.entrySet()) {
+			if (isSameOrOverriding(entry.getKey(), targetMethod)) {
+				for (final CachedInvocation invocation : entry.getValue()) {
+					updateCache(invocation, invocation.getTargetCaches());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invocations are registered against the most specific method, so an
+	 * interface or super class method matches the implementations registered
+	 * for it.
+	 * 
+	 * @param registeredMethod
+	 * @param targetMethod
+	 * @return
+	 */
+	private static boolean isSameOrOverriding(Method registeredMethod, Method targetMethod) {
+		return registeredMethod.equals(targetMethod) || (registeredMethod.getName().equals(targetMethod.getName())
+				&& Arrays.equals(registeredMethod.getParameterTypes(), targetMethod.getParameterTypes())
+				&& targetMethod.getDeclaringClass().isAssignableFrom(registeredMethod.getDeclaringClass()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StalenessReport getStalenessReport(String cacheName) {
+		refreshPartition();
+		final long now = System.currentTimeMillis();
+		final long target = getStalenessTarget(cacheName);
+		long[] staleness = new long[0];
+		int entries = 0;
+		int entriesOverTarget = 0;
+		if (cacheToInvocationsMap.get(cacheName) != null) {
+			final Set<CachedInvocation> invocations = cacheToInvocationsMap.get(cacheName);
+			staleness = new long[invocations.size()];
+			for (final CachedInvocation invocation : invocations) {
+				if (!isLocallyOwned(invocation)) {
+					// Refreshed, and reported, by its owner
+					continue;
+				}
+				if (entries == staleness.length) {
+					staleness = Arrays.copyOf(staleness, entries * 2 + 1);
+				}
+				staleness[entries] = now - invocation.getLastSuccessMillis();
+				if (target > 0 && staleness[entries] > target) {
+					entriesOverTarget++;
+				}
+				entries++;
+			}
+		}
+		Arrays.sort(staleness, 0, entries);
+		return new StalenessReport(cacheName, entries, entries > 0 ? staleness[entries - 1] : 0,
+				entries > 0 ? staleness[(int) Math.ceil(entries * 0.99) - 1] : 0, target, entriesOverTarget);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refreshStaleEntries() {
+		purgeCollectedTargets();
+		refreshPartition();
+		final long now = System.currentTimeMillis();
+		new RefreshPass(new HashSet<String>(stalenessTargets.keySet()),
+				invocation -> isLocallyOwned(invocation) && isOverStalenessTarget(invocation, now)).run();
+	}
+
+	/**
+	 * @param invocation
+	 * @param now
+	 * @return true if the invocation has gone without a successful refresh for
+	 *         longer than the staleness target of any of its caches
+	 */
+	private boolean isOverStalenessTarget(CachedInvocation invocation, long now) {
+		for (final Cache cache : invocation.getTargetCaches()) {
+			final long target = getStalenessTarget(cache.getName());
+			if (target > 0 && now - invocation.getLastSuccessMillis() >= target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the maximum time the entries of the named cache should go without a
+	 * successful refresh. Entries staler than this are reported by
+	 * {@link #getStalenessReport(String)} and refreshed by
+	 * {@link #refreshStaleEntries()}.
+	 * 
+	 * @param cacheName
+	 * @param stalenessTargetMillis
+	 *            0 or less to remove the target
+	 */
+	public void setStalenessTarget(String cacheName, long stalenessTargetMillis) {
+		if (stalenessTargetMillis > 0) {
+			stalenessTargets.put(cacheName, stalenessTargetMillis);
+		} else {
+			stalenessTargets.remove(cacheName);
+		}
+	}
+
+	/**
+	 * Sets the staleness targets in bulk, mapping cache names to their target
+	 * in milliseconds.
+	 * 
+	 * @param stalenessTargets
+	 * @see #setStalenessTarget(String, long)
+	 */
+	public void setStalenessTargets(Map<String, Long> stalenessTargets) {
+		for (final Map.Entry<String, Long> entry : stalenessTargets.entrySet()) {
+			setStalenessTarget(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private long getStalenessTarget(String cacheName) {
+		final Long target = stalenessTargets.get(cacheName);
+		return target != null ? target : 0;
+	}
+
+	/**
+	 * Declares that the cache named cacheName is computed from the caches named
+	 * upstreamCacheNames. Refreshing any of the upstream caches refreshes the
+	 * named cache afterwards.
+	 * 
+	 * @param cacheName
+	 * @param upstreamCacheNames
+	 * @throws IllegalArgumentException
+	 *             if a dependency would introduce a cycle
+	 */
+	public void addCacheDependency(String cacheName, String... upstreamCacheNames) {
+		for (final String upstreamCacheName : upstreamCacheNames) {
+			dependencyGraph.addDependency(cacheName, upstreamCacheName);
+		}
+	}
+
+	/**
+	 * Declares cache dependencies in bulk, mapping each derived cache name to
+	 * the names of the caches it is computed from.
+	 * 
+	 * @param cacheDependencies
+	 * @see #addCacheDependency(String, String...)
+	 */
+	public void setCacheDependencies(Map<String, ? extends Collection<String>> cacheDependencies) {
+		for (final Map.Entry<String, ? extends Collection<String>> entry : cacheDependencies.entrySet()) {
+			addCacheDependency(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+		}
+	}
+
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	public void setRefreshParallelism(int refreshParallelism) {
+		this.refreshParallelism = refreshParallelism;
+	}
+
+	/**
+	 * Registers a listener for the outcome of every refreshed key. The first
+	 * listener starts the event dispatcher thread.
+	 * 
+	 * @param listener
+	 */
+	public synchronized void addRefreshListener(RefreshListener listener) {
+		if (eventDispatcher == null) {
+			eventDispatcher = new RefreshEventDispatcher(refreshEventBufferSize, refreshEventBatchSize,
+					refreshEventPublishTimeoutMillis);
 		}
+		eventDispatcher.addListener(listener);
+	}
+
+	/**
+	 * Unregisters a refresh listener. Removing the last listener stops the
+	 * event dispatcher thread once the queued events are delivered.
+	 * 
+	 * @param listener
+	 */
+	public synchronized void removeRefreshListener(RefreshListener listener) {
+		if (eventDispatcher != null && eventDispatcher.removeListener(listener)) {
+			shutdown();
+		}
+	}
+
+	@Autowired(required = false)
+	public void setRefreshListeners(List<RefreshListener> refreshListeners) {
+		for (final RefreshListener listener : refreshListeners) {
+			addRefreshListener(listener);
+		}
+	}
+
+	/**
+	 * @param refreshEventBufferSize
+	 *            number of events buffered for slow listeners, applies to
+	 *            listeners added afterwards
+	 */
+	public void setRefreshEventBufferSize(int refreshEventBufferSize) {
+		this.refreshEventBufferSize = refreshEventBufferSize;
+	}
+
+	/**
+	 * @param refreshEventBatchSize
+	 *            maximum number of events per batch, applies to listeners added
+	 *            afterwards
+	 */
+	public void setRefreshEventBatchSize(int refreshEventBatchSize) {
+		this.refreshEventBatchSize = refreshEventBatchSize;
+	}
+
+	/**
+	 * @param refreshEventPublishTimeoutMillis
+	 *            time a refresh thread waits for buffer space before dropping
+	 *            an event, 0 to never wait, applies to listeners added
+	 *            afterwards
+	 */
+	public void setRefreshEventPublishTimeoutMillis(long refreshEventPublishTimeoutMillis) {
+		this.refreshEventPublishTimeoutMillis = refreshEventPublishTimeoutMillis;
+	}
+
+	/**
+	 * Stops the event dispatcher thread once the queued events are delivered.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (eventDispatcher != null) {
+			eventDispatcher.shutdown();
+			eventDispatcher = null;
+		}
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	public void setClusterCoordinator(ClusterCoordinator clusterCoordinator) {
+		this.clusterCoordinator = clusterCoordinator;
 	}
 
 	/**
@@ -209,6 +1105,197 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 		return allInvocations;
 	}
 
+	/**
+	 * Refresh of a set of caches, in which every invocation is executed once
+	 * and its result written to all of its caches within the set. The work is
+	 * split up front: each invocation is assigned to the stage of the first of
+	 * its caches in refresh order, and the stages of its other caches wait for
+	 * that one, so that the caches derived from them never read values older
+	 * than the refresh.
+	 * 
+	 * @see CacheSupportImpl#refreshInDependencyOrder(Collection)
+	 */
+	private final class RefreshPass {
+
+		private final Set<String> scope;
+
+		/**
+		 * Cache names of the scope, each after the caches it is computed from
+		 */
+		private final List<String> ordered;
+
+		/**
+		 * Cache name to the invocations its stage executes
+		 */
+		private final Map<String, List<CachedInvocation>> assignedInvocations;
+
+		/**
+		 * Cache name to the caches whose stage completes before its own: those
+		 * it is computed from, and those executing invocations it holds
+		 */
+		private final Map<String, Set<String>> prerequisites;
+
+		/**
+		 * Shadow generations of the generational caches within the scope
+		 */
+		private final ConcurrentMap<String, PendingGeneration> generations = new ConcurrentHashMap<String, PendingGeneration>();
+
+		/**
+		 * @param scope
+		 *            names of the caches to refresh
+		 * @param selection
+		 *            invocations to refresh within these caches, null for all
+		 */
+		private RefreshPass(Set<String> scope, Predicate<CachedInvocation> selection) {
+			this.scope = scope;
+			this.ordered = dependencyGraph.topologicalOrder(scope);
+			this.assignedInvocations = new HashMap<String, List<CachedInvocation>>(ordered.size());
+			this.prerequisites = new HashMap<String, Set<String>>(ordered.size());
+			final Map<String, Integer> positions = new HashMap<String, Integer>(ordered.size());
+			for (final String cacheName : ordered) {
+				positions.put(cacheName, positions.size());
+				assignedInvocations.put(cacheName, new ArrayList<CachedInvocation>());
+				prerequisites.put(cacheName, new HashSet<String>(dependencyGraph.getUpstream(cacheName)));
+			}
+			final Set<CachedInvocation> assigned = Collections
+					.newSetFromMap(new IdentityHashMap<CachedInvocation, Boolean>());
+			for (final String cacheName : ordered) {
+				final Set<CachedInvocation> invocations = cacheToInvocationsMap.get(cacheName);
+				if (invocations == null) {
+					// Wrong cache name, missing spring configuration for the
+					// cache name used in annotations
+					continue;
+				}
+				for (final CachedInvocation invocation : invocations) {
+					if ((selection == null || selection.test(invocation)) && assigned.add(invocation)) {
+						assignedInvocations.get(cacheName).add(invocation);
+						for (final Cache cache : invocation.getTargetCaches()) {
+							final Integer position = positions.get(cache.getName());
+							// Later in the order, unless registered meanwhile
+							if (position != null && position > positions.get(cacheName)) {
+								prerequisites.get(cache.getName()).add(cacheName);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Refreshes the caches of the scope in dependency order, returning once
+		 * all have been refreshed.
+		 */
+		private void run() {
+			runInDependencyOrder(ordered, prerequisites::get, this::refresh);
+		}
+
+		/**
+		 * Executes the invocations assigned to the named cache. Generational
+		 * caches are refreshed in parallel into a shadow generation published
+		 * at the end, once the stages writing to it have completed too, entries
+		 * whose invocation fails keeping their previous value.
+		 * 
+		 * @param cacheName
+		 */
+		private void refresh(String cacheName) {
+			final List<CachedInvocation> invocations = assignedInvocations.get(cacheName);
+			final Cache cache = cacheManager.getCache(cacheName);
+			if (cache instanceof GenerationalCache) {
+				try {
+					forEachInParallel(invocations, this::refresh);
+				} finally {
+					generationOf((GenerationalCache) cache).publish();
+				}
+			} else {
+				for (final CachedInvocation invocation : invocations) {
+					refresh(invocation);
+				}
+			}
+		}
+
+		private void refresh(CachedInvocation invocation) {
+			final List<Cache> caches = new ArrayList<Cache>();
+			for (final Cache cache : invocation.getTargetCaches()) {
+				if (scope.contains(cache.getName())) {
+					caches.add(cache);
+				}
+			}
+			refreshInvocation(invocation, caches, this);
+		}
+
+		private PendingGeneration generationOf(GenerationalCache cache) {
+			PendingGeneration generation = generations.get(cache.getName());
+			if (generation == null) {
+				final PendingGeneration created = new PendingGeneration(cache);
+				generation = generations.putIfAbsent(cache.getName(), created);
+				if (generation == null) {
+					generation = created;
+				}
+			}
+			return generation;
+		}
+	}
+
+	/**
+	 * Shadow generation of a generational cache being refreshed, holding back
+	 * the refresh events of its entries until it is published and they become
+	 * visible.
+	 * 
+	 * @see GenerationalCache.ShadowGeneration
+	 */
+	private final class PendingGeneration {
+
+		private final GenerationalCache cache;
+
+		private final GenerationalCache.ShadowGeneration shadow;
+
+		private final Queue<RefreshEvent> events = new ConcurrentLinkedQueue<RefreshEvent>();
+
+		private volatile boolean published;
+
+		private PendingGeneration(GenerationalCache cache) {
+			this.cache = cache;
+			this.shadow = cache.newGeneration();
+		}
+
+		private void put(Object key, Object computed, RefreshEvent.Outcome outcome) {
+			shadow.put(key, computed);
+			if (outcome != null) {
+				events.add(new RefreshEvent(cache.getName(), key, outcome));
+				if (published) {
+					flushEvents();
+				}
+			}
+		}
+
+		private void publish() {
+			shadow.publish();
+			published = true;
+			flushEvents();
+		}
+
+		private void flushEvents() {
+			RefreshEvent event;
+			while ((event = events.poll()) != null) {
+				publishRefreshEvent(event.getCacheName(), event.getKey(), event.getOutcome());
+			}
+		}
+	}
+
+	/**
+	 * Weak reference to a target bean, queued with its invocation once the bean
+	 * is garbage collected.
+	 */
+	private static final class TargetReference extends WeakReference<Object> {
+
+		private final CachedInvocation invocation;
+
+		private TargetReference(Object targetBean, CachedInvocation invocation, ReferenceQueue<Object> queue) {
+			super(targetBean, queue);
+			this.invocation = invocation;
+		}
+	}
+
 	/**
 	 * Holds the method invocation information to use while refreshing the
 	 * cache.
@@ -220,14 +1307,46 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 	 */
 	protected static final class CachedInvocation {
 		private Object key;
-		private final Object targetBean;
+		/**
+		 * Weakly referenced so that the registry does not keep scoped or
+		 * prototype beans, and their application contexts, alive
+		 */
+		private final TargetReference targetBean;
+		private final int targetIdentity;
 		private final Method targetMethod;
 		private Object[] arguments;
 
-		protected CachedInvocation(Object key, Object targetBean, Method targetMethod, Object[] arguments) {
+		/**
+		 * Time the value was last computed successfully, initially by the
+		 * intercepted invocation itself
+		 */
+		private volatile long lastSuccessMillis;
+
+		/**
+		 * Time of the latest refresh attempt, successful or not, 0 if never
+		 * refreshed
+		 */
+		private volatile long lastAttemptMillis;
+
+		/**
+		 * Hash code of the value last computed by a refresh, null if unknown.
+		 * Only kept while refresh listeners are registered.
+		 */
+		private volatile Integer lastValueHash;
+
+		/**
+		 * Caches the invocation is annotated with, resolved once at
+		 * registration. Copied on write as registrations rarely add caches.
+		 */
+		private volatile Cache[] targetCaches = new Cache[0];
+
+		protected CachedInvocation(Object key, Object targetBean, Method targetMethod, Object[] arguments,
+				ReferenceQueue<Object> collectedTargets) {
 			this.key = key;
-			this.targetBean = targetBean;
+			this.targetBean = new TargetReference(targetBean, this, collectedTargets);
+			this.targetIdentity = System.identityHashCode(targetBean);
 			this.targetMethod = targetMethod;
+			this.lastSuccessMillis = System.currentTimeMillis();
 			if (arguments != null && arguments.length != 0) {
 				this.arguments = Arrays.copyOf(arguments, arguments.length);
 				// TODO check if deep cloning is needed and implement
@@ -248,7 +1367,8 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 				return false;
 			}
 			final CachedInvocation other = (CachedInvocation) obj;
-			return key.equals(other.getKey());
+			final Object target = getTargetBean();
+			return target != null && other.isInvocationOf(target, targetMethod) && key.equals(other.getKey());
 		}
 
 		/**
@@ -259,10 +1379,14 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 		}
 
 		/**
-		 * @return the targetBean
+		 * @return the targetBean, null once it has been garbage collected
 		 */
 		private Object getTargetBean() {
-			return targetBean;
+			return targetBean.get();
+		}
+
+		private Integer getTargetIdentity() {
+			return targetIdentity;
 		}
 
 		/**
@@ -279,13 +1403,97 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 		 */
 		@Override
 		public int hashCode() {
-			return key.hashCode();
+			return 31 * (31 * key.hashCode() + targetMethod.hashCode()) + targetIdentity;
 		}
 
 		public Object getKey() {
 			return key;
 		}
 
+		/**
+		 * @return the caches refreshes of this invocation write to
+		 */
+		private Cache[] getTargetCaches() {
+			return targetCaches;
+		}
+
+		/**
+		 * @param bean
+		 * @param method
+		 * @return true if this invocation calls the method on that very bean
+		 */
+		private boolean isInvocationOf(Object bean, Method method) {
+			return getTargetBean() == bean && targetMethod.equals(method);
+		}
+
+		private boolean isTargeting(String cacheName) {
+			for (final Cache cache : targetCaches) {
+				if (cache.getName().equals(cacheName)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @param cacheName
+		 * @return true if the invocation no longer targets any cache
+		 */
+		private synchronized boolean removeTargetCache(String cacheName) {
+			final List<Cache> caches = new ArrayList<Cache>(targetCaches.length);
+			for (final Cache cache : targetCaches) {
+				if (!cache.getName().equals(cacheName)) {
+					caches.add(cache);
+				}
+			}
+			targetCaches = caches.toArray(new Cache[caches.size()]);
+			return targetCaches.length == 0;
+		}
+
+		/**
+		 * @param cache
+		 * @return true if the cache is the first one added
+		 */
+		private synchronized boolean addTargetCache(Cache cache) {
+			if (cache != null && !isTargeting(cache.getName())) {
+				final Cache[] caches = Arrays.copyOf(targetCaches, targetCaches.length + 1);
+				caches[targetCaches.length] = cache;
+				targetCaches = caches;
+				return caches.length == 1;
+			}
+			return false;
+		}
+
+		/**
+		 * Records the value computed by a refresh and tells whether it differs
+		 * from the value computed by the previous one, without reading the
+		 * caches back. The first refresh after registration, or after
+		 * listeners were added, reports a change.
+		 * 
+		 * @param computed
+		 * @param tracked
+		 *            whether refresh listeners are registered
+		 * @return the outcome of the refresh, null if not tracked
+		 */
+		private RefreshEvent.Outcome recordValue(Object computed, boolean tracked) {
+			if (!tracked) {
+				lastValueHash = null;
+				return null;
+			}
+			final Integer valueHash = ObjectUtils.nullSafeHashCode(computed);
+			final Integer previous = lastValueHash;
+			lastValueHash = valueHash;
+			return valueHash.equals(previous) ? RefreshEvent.Outcome.UNCHANGED : RefreshEvent.Outcome.CHANGED;
+		}
+
+		public long getLastSuccessMillis() {
+			return lastSuccessMillis;
+		}
+
+		public long getLastAttemptMillis() {
+			return lastAttemptMillis;
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * 
@@ -293,7 +1501,7 @@ public class CacheSupportImpl implements CacheOperations, InvocationRegistry {
 		 */
 		@Override
 		public String toString() {
-			return "CachedInvocation [Key=" + key + ", targetBean=" + targetBean + ", targetMethod=" + targetMethod
+			return "CachedInvocation [Key=" + key + ", targetBean=" + getTargetBean() + ", targetMethod=" + targetMethod
 					+ ", arguments=" + (arguments != null ? arguments.length : "none") + " ]";
 		}
 
@@ -0,0 +1,29 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.Collection;
+
+/**
+ * Tells the refresher which application nodes share the refresh work. When a
+ * ClusterCoordinator is configured, each node refreshes only the cached
+ * invocations whose keys hash into its share of the key space, and the shares
+ * are rebalanced whenever the membership changes.
+ * 
+ * Keys are partitioned using their hashCode, which must therefore be the same
+ * on every node, as it is for keys made of Strings, numbers and enums names
+ * but not for keys relying on identity hash codes.
+ */
+public interface ClusterCoordinator {
+
+	/**
+	 * @return identifier of this node, unique within the cluster
+	 */
+	String getLocalMemberId();
+
+	/**
+	 * Returns the identifiers of the nodes currently sharing the refresh work,
+	 * including this node. Called at the start of every refresh.
+	 * 
+	 * @return
+	 */
+	Collection<String> getMembers();
+}
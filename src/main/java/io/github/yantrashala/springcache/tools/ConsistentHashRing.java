@@ -0,0 +1,73 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * Assigns cache keys to cluster members using consistent hashing. Each member
+ * is placed on the ring at several virtual positions so the key space is
+ * shared evenly, and a change in membership only moves the keys of the
+ * members that joined or left.
+ */
+final class ConsistentHashRing {
+
+	private static final int VIRTUAL_NODES_PER_MEMBER = 128;
+
+	private final Set<String> members;
+
+	private final TreeMap<Long, String> ring = new TreeMap<Long, String>();
+
+	ConsistentHashRing(Collection<String> members) {
+		this.members = Collections.unmodifiableSet(new HashSet<String>(members));
+		for (final String member : this.members) {
+			for (int i = 0; i < VIRTUAL_NODES_PER_MEMBER; i++) {
+				ring.put(position(member + '#' + i), member);
+			}
+		}
+	}
+
+	Set<String> getMembers() {
+		return members;
+	}
+
+	/**
+	 * @param key
+	 * @return the member owning the key, null if the ring has no members
+	 */
+	String ownerOf(Object key) {
+		if (ring.isEmpty()) {
+			return null;
+		}
+		final Map.Entry<Long, String> owner = ring.ceilingEntry(mix(key.hashCode()));
+		return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+	}
+
+	private static long position(String virtualNode) {
+		return ByteBuffer.wrap(DigestUtils.md5Digest(virtualNode.getBytes(StandardCharsets.UTF_8))).getLong();
+	}
+
+	/**
+	 * Spreads the 32 bit hash code over the 64 bit ring, so that keys with
+	 * close hash codes do not cluster on the same member.
+	 * 
+	 * @param hashCode
+	 * @return
+	 */
+	private static long mix(int hashCode) {
+		long h = hashCode;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
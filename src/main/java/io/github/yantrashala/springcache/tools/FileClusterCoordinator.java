@@ -0,0 +1,115 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ClusterCoordinator keeping the membership as files in a shared directory.
+ * Each node owns a file named after its member id and, while joined, touches
+ * it whenever the membership is read; nodes whose file has not been touched
+ * within the member timeout are considered gone. Suited to tests, several nodes in one JVM, and
+ * nodes sharing a file system.
+ */
+public class FileClusterCoordinator implements ClusterCoordinator {
+
+	private static final String MEMBER_FILE_SUFFIX = ".member";
+
+	private final File directory;
+
+	private final String localMemberId;
+
+	private final long memberTimeoutMillis;
+
+	/**
+	 * Set once this node left, so that reading the membership does not
+	 * register it again
+	 */
+	private volatile boolean left;
+
+	/**
+	 * @param directory
+	 *            directory shared by all the nodes
+	 * @param localMemberId
+	 *            id of this node, usable as a file name
+	 * @param memberTimeoutMillis
+	 *            time after which a node that stopped refreshing is dropped,
+	 *            longer than the interval between refreshes
+	 */
+	public FileClusterCoordinator(File directory, String localMemberId, long memberTimeoutMillis) {
+		this.directory = directory;
+		this.localMemberId = localMemberId;
+		this.memberTimeoutMillis = memberTimeoutMillis;
+	}
+
+	/**
+	 * Registers this node, making it visible to the other nodes before its
+	 * first refresh.
+	 */
+	public void join() {
+		left = false;
+		heartbeat();
+	}
+
+	/**
+	 * Removes this node, handing its share of the keys to the remaining nodes
+	 * on their next refresh. The node stays out of the membership until it
+	 * joins again.
+	 */
+	public void leave() {
+		left = true;
+		memberFile(localMemberId).delete();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getLocalMemberId() {
+		return localMemberId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<String> getMembers() {
+		heartbeat();
+		final long oldestAlive = System.currentTimeMillis() - memberTimeoutMillis;
+		final List<String> members = new ArrayList<String>();
+		final File[] memberFiles = directory.listFiles();
+		if (memberFiles != null) {
+			for (final File memberFile : memberFiles) {
+				final String fileName = memberFile.getName();
+				if (fileName.endsWith(MEMBER_FILE_SUFFIX) && memberFile.lastModified() >= oldestAlive) {
+					members.add(fileName.substring(0, fileName.length() - MEMBER_FILE_SUFFIX.length()));
+				}
+			}
+		}
+		return members;
+	}
+
+	private void heartbeat() {
+		if (left) {
+			return;
+		}
+		final File memberFile = memberFile(localMemberId);
+		if (!directory.isDirectory()) {
+			directory.mkdirs();
+		}
+		try {
+			if (!memberFile.createNewFile()) {
+				memberFile.setLastModified(System.currentTimeMillis());
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can not register cluster member " + localMemberId, e);
+		}
+	}
+
+	private File memberFile(String memberId) {
+		return new File(directory, memberId + MEMBER_FILE_SUFFIX);
+	}
+}
@@ -0,0 +1,199 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * In-memory cache whose contents can be replaced as a whole. Configure it in
+ * place of a ConcurrentMapCache to opt in to generation-swap refreshes: the
+ * refresher fills a shadow generation off to the side and publishes it with a
+ * single reference swap, so readers see either the old or the new values of
+ * the whole cache and never contend with the refresh writes.
+ */
+public class GenerationalCache extends AbstractValueAdaptingCache {
+
+	private final String name;
+
+	private final AtomicReference<ConcurrentMap<Object, Object>> liveGeneration = new AtomicReference<ConcurrentMap<Object, Object>>(
+			new ConcurrentHashMap<Object, Object>());
+
+	/**
+	 * Generations started and not yet published, which evictions apply to as
+	 * well
+	 */
+	private final Set<ShadowGeneration> shadowGenerations = ConcurrentHashMap.newKeySet();
+
+	public GenerationalCache(String name) {
+		this(name, true);
+	}
+
+	public GenerationalCache(String name, boolean allowNullValues) {
+		super(allowNullValues);
+		this.name = name;
+	}
+
+	/**
+	 * Starts a new, empty generation of this cache. Values put into it stay
+	 * invisible to readers until it is published, which it must eventually be.
+	 *
+	 * @return
+	 */
+	public ShadowGeneration newGeneration() {
+		final ShadowGeneration shadow = new ShadowGeneration();
+		shadowGenerations.add(shadow);
+		return shadow;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the map holding the live generation
+	 */
+	@Override
+	public ConcurrentMap<Object, Object> getNativeCache() {
+		return liveGeneration.get();
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		return liveGeneration.get().get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(Object key, final Callable<T> valueLoader) {
+		return (T) fromStoreValue(liveGeneration.get().computeIfAbsent(key, k -> {
+			try {
+				return toStoreValue(valueLoader.call());
+			} catch (final Exception e) {
+				throw new ValueRetrievalException(k, valueLoader, e);
+			}
+		}));
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		liveGeneration.get().put(key, toStoreValue(value));
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		return toValueWrapper(liveGeneration.get().putIfAbsent(key, toStoreValue(value)));
+	}
+
+	/**
+	 * Removes the entry from the live generation and from the generations
+	 * being built, so that publishing them does not bring it back.
+	 */
+	@Override
+	public void evict(Object key) {
+		liveGeneration.get().remove(key);
+		for (final ShadowGeneration shadow : shadowGenerations) {
+			shadow.evict(key);
+		}
+	}
+
+	/**
+	 * Clears the live generation and the generations being built.
+	 */
+	@Override
+	public void clear() {
+		liveGeneration.get().clear();
+		for (final ShadowGeneration shadow : shadowGenerations) {
+			shadow.clear();
+		}
+	}
+
+	/**
+	 * Generation being built by a refresh. Safe to fill from several threads.
+	 *
+	 * @see GenerationalCache
+	 */
+	public final class ShadowGeneration {
+
+		private final ConcurrentMap<Object, Object> store = new ConcurrentHashMap<Object, Object>();
+
+		/**
+		 * Puts take the shared side, publish the exclusive side, so that no put
+		 * lands in the shadow after it has been published
+		 */
+		private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+
+		private boolean published;
+
+		private ShadowGeneration() {
+		}
+
+		/**
+		 * Adds the value to this generation, or to the live generation once
+		 * this one has been published.
+		 *
+		 * @param key
+		 * @param value
+		 */
+		public void put(Object key, Object value) {
+			publishLock.readLock().lock();
+			try {
+				if (published) {
+					GenerationalCache.this.put(key, value);
+				} else {
+					store.put(key, toStoreValue(value));
+				}
+			} finally {
+				publishLock.readLock().unlock();
+			}
+		}
+
+		private void evict(Object key) {
+			publishLock.readLock().lock();
+			try {
+				(published ? liveGeneration.get() : store).remove(key);
+			} finally {
+				publishLock.readLock().unlock();
+			}
+		}
+
+		private void clear() {
+			publishLock.readLock().lock();
+			try {
+				(published ? liveGeneration.get() : store).clear();
+			} finally {
+				publishLock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Makes this generation live. Keys missing from it, such as those whose
+		 * refresh failed or that were cached while it was being built, keep
+		 * their values from the current live generation. Values cached in the
+		 * current generation while it is being copied may be dropped, which
+		 * only costs a cache miss.
+		 */
+		public void publish() {
+			publishLock.writeLock().lock();
+			try {
+				if (!published) {
+					for (final Map.Entry<Object, Object> entry : liveGeneration.get().entrySet()) {
+						store.putIfAbsent(entry.getKey(), entry.getValue());
+					}
+					liveGeneration.set(store);
+					published = true;
+					shadowGenerations.remove(this);
+				}
+			} finally {
+				publishLock.writeLock().unlock();
+			}
+		}
+	}
+}
@@ -23,4 +23,12 @@ public interface InvocationRegistry {
 	 */
 	void registerInvocation(Object invokedBean, Method invokedMethod, Object[] invocationArguments, Set<String> cacheNames);
 
+	/**
+	 * Forgets the invocations recorded on the bean, typically when it is
+	 * destroyed. The values already cached are no longer refreshed.
+	 * 
+	 * @param invokedBean
+	 */
+	void unregisterInvocations(Object invokedBean);
+
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Unregisters the invocations recorded on scoped beans, such as request or
+ * session scoped ones, when they are destroyed. Singletons are handled by the
+ * registry when their context closes, and prototypes are never destroyed by
+ * the container so their invocations are purged once they are garbage
+ * collected.
+ */
+@Component
+public class InvocationRegistryCleaner implements DestructionAwareBeanPostProcessor, BeanFactoryAware {
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	/**
+	 * Whether the bean classes seen so far declare @Cacheable methods
+	 */
+	private final ConcurrentMap<Class<?>, Boolean> cacheableClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		if (beanFactory instanceof ConfigurableListableBeanFactory) {
+			this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+		}
+	}
+
+	@Override
+	public void postProcessBeforeDestruction(Object bean, String beanName) {
+		if (beanFactory == null || beanFactory.containsSingleton(beanName)) {
+			return;
+		}
+		InvocationRegistry registry;
+		try {
+			// Looked up lazily, post processors are created before the beans
+			// they could depend on and the registry may already be destroyed
+			registry = beanFactory.getBeanProvider(InvocationRegistry.class).getIfAvailable();
+		} catch (final BeansException e) {
+			return;
+		}
+		if (registry != null) {
+			registry.unregisterInvocations(CacheSupportImpl.ultimateTarget(bean));
+		}
+	}
+
+	/**
+	 * Asked when the bean is created, before any of its invocations can be
+	 * registered, so only beans with @Cacheable methods, the only ones the
+	 * registry records invocations on, get a destruction callback.
+	 */
+	@Override
+	public boolean requiresDestruction(Object bean) {
+		return !(bean instanceof InvocationRegistry)
+				&& cacheableClasses.computeIfAbsent(AopProxyUtils.ultimateTargetClass(bean), this::hasCacheableMethods);
+	}
+
+	private boolean hasCacheableMethods(Class<?> beanClass) {
+		final boolean[] found = new boolean[1];
+		ReflectionUtils.doWithMethods(beanClass, method -> found[0] = true,
+				method -> !found[0] && AnnotatedElementUtils.hasAnnotation(method, Cacheable.class));
+		return found[0];
+	}
+}
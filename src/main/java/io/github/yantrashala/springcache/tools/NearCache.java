@@ -0,0 +1,299 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Two tier cache keeping a bounded on-heap copy of the entries read from or
+ * written to a remote cache. Hits on the local tier avoid the network round
+ * trip and deserialization of the remote cache. Writes go to both tiers, so
+ * the refresher keeps the local tier coherent while refreshing.
+ * 
+ * Entries cached by other application nodes are only seen once they are
+ * missing locally; the local tier is bounded by size and evicts the least
+ * recently used entries first. Large local tiers are split in segments locked
+ * independently, each evicting its own least recently used entries, so that
+ * concurrent hits on different keys do not contend. A local time to live bounds how long a copy can
+ * lag behind a value written to the remote cache by another node.
+ */
+public class NearCache implements Cache {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * Smallest segment, so that the least recently used order stays
+	 * meaningful within each segment
+	 */
+	private static final int MIN_SEGMENT_ENTRIES = 64;
+
+	private final Cache remote;
+
+	private final long localTtlMillis;
+
+	/**
+	 * Segments of the local tier, a power of two in number
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * @param remote
+	 *            cache backing the local tier
+	 * @param maxLocalEntries
+	 *            maximum number of entries held on-heap
+	 * @throws IllegalArgumentException
+	 *             if the remote cache is a GenerationalCache, whose generation
+	 *             swaps the near cache would hide from the refresher
+	 */
+	public NearCache(Cache remote, int maxLocalEntries) {
+		this(remote, maxLocalEntries, 0);
+	}
+
+	/**
+	 * @param remote
+	 *            cache backing the local tier
+	 * @param maxLocalEntries
+	 *            maximum number of entries held on-heap
+	 * @param localTtlMillis
+	 *            time a local copy is served before being read again from the
+	 *            remote cache, 0 to keep it until evicted
+	 * @throws IllegalArgumentException
+	 *             if the remote cache is a GenerationalCache, whose generation
+	 *             swaps the near cache would hide from the refresher
+	 */
+	public NearCache(Cache remote, int maxLocalEntries, long localTtlMillis) {
+		if (remote instanceof GenerationalCache) {
+			throw new IllegalArgumentException("Generational cache " + remote.getName() + " can not be near cached");
+		}
+		this.remote = remote;
+		this.localTtlMillis = localTtlMillis;
+		int segmentCount = 1;
+		while (segmentCount < MAX_SEGMENTS && maxLocalEntries / (segmentCount * 2) >= MIN_SEGMENT_ENTRIES) {
+			segmentCount *= 2;
+		}
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(maxLocalEntries / segmentCount);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return remote.getName();
+	}
+
+	/**
+	 * @return the native cache of the remote tier
+	 */
+	@Override
+	public Object getNativeCache() {
+		return remote.getNativeCache();
+	}
+
+	@Override
+	public ValueWrapper get(Object key) {
+		final Segment segment = segmentFor(key);
+		ValueWrapper value;
+		final long stamp;
+		synchronized (segment) {
+			value = segment.getLocal(key);
+			stamp = segment.writeStamp;
+		}
+		if (value == null) {
+			value = remote.get(key);
+			if (value != null) {
+				segment.fillLocal(key, value, stamp);
+			}
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(Object key, Class<T> type) {
+		final ValueWrapper wrapper = get(key);
+		final Object value = wrapper != null ? wrapper.get() : null;
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException(
+					"Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		final Segment segment = segmentFor(key);
+		final ValueWrapper cached;
+		final long stamp;
+		synchronized (segment) {
+			cached = segment.getLocal(key);
+			stamp = segment.writeStamp;
+		}
+		if (cached != null) {
+			return (T) cached.get();
+		}
+		final T value = remote.get(key, valueLoader);
+		segment.fillLocal(key, new SimpleValueWrapper(value), stamp);
+		return value;
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		remote.put(key, value);
+		segmentFor(key).putLocal(key, new SimpleValueWrapper(value));
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		final ValueWrapper existing = remote.putIfAbsent(key, value);
+		segmentFor(key).putLocal(key, existing != null ? existing : new SimpleValueWrapper(value));
+		return existing;
+	}
+
+	@Override
+	public void evict(Object key) {
+		remote.evict(key);
+		evictLocal(key);
+	}
+
+	@Override
+	public void clear() {
+		remote.clear();
+		clearLocal();
+	}
+
+	/**
+	 * Drops the local copy of the entry, the next read fetches it from the
+	 * remote cache.
+	 * 
+	 * @param key
+	 */
+	public void evictLocal(Object key) {
+		segmentFor(key).evictLocal(key);
+	}
+
+	/**
+	 * Drops all local copies, the next reads fetch from the remote cache.
+	 */
+	public void clearLocal() {
+		for (final Segment segment : segments) {
+			segment.clearLocal();
+		}
+	}
+
+	/**
+	 * @return number of entries held on-heap
+	 */
+	public int getLocalSize() {
+		int size = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.local.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment segmentFor(Object key) {
+		final int hash = key != null ? key.hashCode() : 0;
+		return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+	}
+
+	/**
+	 * Independently locked part of the local tier.
+	 */
+	private final class Segment {
+
+		/**
+		 * Local copies in access order, evicting the eldest once full. Guarded
+		 * by the segment as reads reorder it.
+		 */
+		private final Map<Object, LocalEntry> local;
+
+		/**
+		 * Counts the writes to the segment, guarded by the segment. A value
+		 * read from the remote tier is only copied locally if no write
+		 * happened since the local miss, so that it never replaces a newer
+		 * value written meanwhile.
+		 */
+		private long writeStamp;
+
+		private Segment(final int maxEntries) {
+			this.local = new LinkedHashMap<Object, LocalEntry>(Math.min(maxEntries, 1024), 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, LocalEntry> eldest) {
+					return size() > maxEntries;
+				}
+			};
+		}
+
+		/**
+		 * @param key
+		 * @return the local copy, null if missing or expired. Called holding
+		 *         the segment.
+		 */
+		private ValueWrapper getLocal(Object key) {
+			final LocalEntry entry = local.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAtMillis < System.currentTimeMillis()) {
+				local.remove(key);
+				return null;
+			}
+			return entry.value;
+		}
+
+		private synchronized void putLocal(Object key, ValueWrapper value) {
+			local.put(key, new LocalEntry(value));
+			writeStamp++;
+		}
+
+		private synchronized void evictLocal(Object key) {
+			local.remove(key);
+			writeStamp++;
+		}
+
+		private synchronized void clearLocal() {
+			local.clear();
+			writeStamp++;
+		}
+
+		/**
+		 * Copies a value read from the remote tier locally, unless the segment
+		 * has been written since the miss. Skipping the copy only costs
+		 * another remote read.
+		 * 
+		 * @param key
+		 * @param value
+		 * @param stamp
+		 *            write stamp seen when the key was missing locally
+		 */
+		private synchronized void fillLocal(Object key, ValueWrapper value, long stamp) {
+			if (writeStamp == stamp) {
+				local.putIfAbsent(key, new LocalEntry(value));
+			}
+		}
+	}
+
+	/**
+	 * Local copy of a remote entry, with the time it expires at.
+	 */
+	private final class LocalEntry {
+
+		private final ValueWrapper value;
+
+		private final long expiresAtMillis;
+
+		private LocalEntry(ValueWrapper value) {
+			this.value = value;
+			this.expiresAtMillis = localTtlMillis > 0 ? System.currentTimeMillis() + localTtlMillis : Long.MAX_VALUE;
+		}
+	}
+}
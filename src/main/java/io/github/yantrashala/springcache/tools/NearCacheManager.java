@@ -0,0 +1,75 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Decorates the caches of any CacheManager with a bounded on-heap tier. Use it
+ * as the application CacheManager in front of a remote cache provider.
+ * GenerationalCaches are already on-heap and are returned undecorated, so that
+ * they keep being refreshed by generation swap.
+ * 
+ * @see NearCache
+ */
+public class NearCacheManager implements CacheManager {
+
+	private final CacheManager remoteCacheManager;
+
+	private final int maxLocalEntriesPerCache;
+
+	private final long localTtlMillis;
+
+	private final ConcurrentMap<String, Cache> nearCaches = new ConcurrentHashMap<String, Cache>();
+
+	/**
+	 * @param remoteCacheManager
+	 *            manager of the caches to decorate
+	 * @param maxLocalEntriesPerCache
+	 *            maximum number of entries each cache holds on-heap
+	 */
+	public NearCacheManager(CacheManager remoteCacheManager, int maxLocalEntriesPerCache) {
+		this(remoteCacheManager, maxLocalEntriesPerCache, 0);
+	}
+
+	/**
+	 * @param remoteCacheManager
+	 *            manager of the caches to decorate
+	 * @param maxLocalEntriesPerCache
+	 *            maximum number of entries each cache holds on-heap
+	 * @param localTtlMillis
+	 *            time a local copy is served before being read again from the
+	 *            remote cache, 0 to keep it until evicted
+	 */
+	public NearCacheManager(CacheManager remoteCacheManager, int maxLocalEntriesPerCache, long localTtlMillis) {
+		this.remoteCacheManager = remoteCacheManager;
+		this.maxLocalEntriesPerCache = maxLocalEntriesPerCache;
+		this.localTtlMillis = localTtlMillis;
+	}
+
+	@Override
+	public Cache getCache(String name) {
+		Cache nearCache = nearCaches.get(name);
+		if (nearCache == null) {
+			final Cache remote = remoteCacheManager.getCache(name);
+			if (remote == null) {
+				return null;
+			}
+			final Cache created = remote instanceof GenerationalCache ? remote
+					: new NearCache(remote, maxLocalEntriesPerCache, localTtlMillis);
+			nearCache = nearCaches.putIfAbsent(name, created);
+			if (nearCache == null) {
+				nearCache = created;
+			}
+		}
+		return nearCache;
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return remoteCacheManager.getCacheNames();
+	}
+}
@@ -0,0 +1,54 @@
+package io.github.yantrashala.springcache.tools;
+
+/**
+ * Outcome of refreshing one key of one cache.
+ */
+public final class RefreshEvent {
+
+	/**
+	 * What the refresh did to the cached value
+	 */
+	public enum Outcome {
+		/**
+		 * The refreshed value differs from the value computed by the previous
+		 * refresh, or no previous refresh was tracked
+		 */
+		CHANGED,
+		/**
+		 * The refreshed value has the hash code of the value computed by the
+		 * previous refresh
+		 */
+		UNCHANGED,
+		/**
+		 * The invocation failed, the previously cached value is retained
+		 */
+		FAILED
+	}
+
+	private final String cacheName;
+	private final Object key;
+	private final Outcome outcome;
+
+	public RefreshEvent(String cacheName, Object key, Outcome outcome) {
+		this.cacheName = cacheName;
+		this.key = key;
+		this.outcome = outcome;
+	}
+
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	public Object getKey() {
+		return key;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	@Override
+	public String toString() {
+		return "RefreshEvent [cacheName=" + cacheName + ", key=" + key + ", outcome=" + outcome + "]";
+	}
+}
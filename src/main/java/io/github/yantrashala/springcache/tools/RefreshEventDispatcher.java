@@ -0,0 +1,123 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands refresh events from the refresh threads to the listeners through a
+ * bounded ring buffer drained in batches by a single daemon thread. When the
+ * buffer is full, publishers wait at most the publish timeout and then drop the
+ * event, so slow listeners hold back the refresh by a bounded time only.
+ */
+final class RefreshEventDispatcher implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RefreshEventDispatcher.class);
+
+	private static final long POLL_MILLIS = 100;
+
+	private final List<RefreshListener> listeners = new CopyOnWriteArrayList<RefreshListener>();
+
+	private final BlockingQueue<RefreshEvent> buffer;
+
+	private final int batchSize;
+
+	private final long publishTimeoutMillis;
+
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	private final Thread dispatcherThread;
+
+	private volatile boolean running = true;
+
+	RefreshEventDispatcher(int bufferSize, int batchSize, long publishTimeoutMillis) {
+		this.buffer = new ArrayBlockingQueue<RefreshEvent>(bufferSize);
+		this.batchSize = batchSize;
+		this.publishTimeoutMillis = publishTimeoutMillis;
+		this.dispatcherThread = new Thread(this, "refresh-event-dispatcher");
+		this.dispatcherThread.setDaemon(true);
+		this.dispatcherThread.start();
+	}
+
+	void addListener(RefreshListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 * @return true if no listener is left
+	 */
+	boolean removeListener(RefreshListener listener) {
+		listeners.remove(listener);
+		return listeners.isEmpty();
+	}
+
+	/**
+	 * Queues the event for the listeners, waiting up to the publish timeout
+	 * for space in the buffer.
+	 * 
+	 * @param event
+	 */
+	void publish(RefreshEvent event) {
+		boolean queued;
+		try {
+			queued = publishTimeoutMillis > 0 ? buffer.offer(event, publishTimeoutMillis, TimeUnit.MILLISECONDS)
+					: buffer.offer(event);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			queued = false;
+		}
+		if (!queued) {
+			droppedEvents.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Stops the dispatcher thread, after delivering the events already queued.
+	 */
+	void shutdown() {
+		running = false;
+		dispatcherThread.interrupt();
+	}
+
+	@Override
+	public void run() {
+		while (running || !buffer.isEmpty()) {
+			final List<RefreshEvent> batch = new ArrayList<RefreshEvent>(batchSize);
+			try {
+				final RefreshEvent first = running ? buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS) : buffer.poll();
+				if (first != null) {
+					batch.add(first);
+					buffer.drainTo(batch, batchSize - 1);
+				}
+			} catch (final InterruptedException e) {
+				// Shutting down, deliver what is left
+			}
+			deliver(batch);
+		}
+	}
+
+	private void deliver(List<RefreshEvent> batch) {
+		final long dropped = droppedEvents.getAndSet(0);
+		for (final RefreshListener listener : listeners) {
+			try {
+				if (dropped > 0) {
+					listener.onEventsDropped(dropped);
+				}
+				if (!batch.isEmpty()) {
+					listener.onRefresh(Collections.unmodifiableList(batch));
+				}
+			} catch (final RuntimeException e) {
+				LOGGER.error("Refresh listener {} failed", listener, e);
+			}
+		}
+	}
+}
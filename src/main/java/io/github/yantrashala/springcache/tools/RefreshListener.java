@@ -0,0 +1,29 @@
+package io.github.yantrashala.springcache.tools;
+
+import java.util.List;
+
+/**
+ * Receives the outcome of refreshes, to react to changed keys incrementally
+ * instead of resynchronizing whole caches. Events are delivered in batches on
+ * a dedicated thread, never on the refresh threads.
+ */
+public interface RefreshListener {
+
+	/**
+	 * Handles a batch of refresh events, in the order they were published.
+	 * 
+	 * @param events
+	 */
+	void onRefresh(List<RefreshEvent> events);
+
+	/**
+	 * Called when events had to be dropped because the listeners fell behind
+	 * the refreshes. Listeners that need every change should resynchronize.
+	 * 
+	 * @param droppedEvents
+	 *            number of events dropped since the previous call
+	 */
+	default void onEventsDropped(long droppedEvents) {
+		// Ignored by default
+	}
+}
@@ -0,0 +1,67 @@
+package io.github.yantrashala.springcache.tools;
+
+/**
+ * Snapshot of how long ago the entries of a cache were last successfully
+ * refreshed, measured from the time the report was taken.
+ */
+public final class StalenessReport {
+
+	private final String cacheName;
+	private final int entries;
+	private final long maxStalenessMillis;
+	private final long p99StalenessMillis;
+	private final long stalenessTargetMillis;
+	private final int entriesOverTarget;
+
+	StalenessReport(String cacheName, int entries, long maxStalenessMillis, long p99StalenessMillis,
+			long stalenessTargetMillis, int entriesOverTarget) {
+		this.cacheName = cacheName;
+		this.entries = entries;
+		this.maxStalenessMillis = maxStalenessMillis;
+		this.p99StalenessMillis = p99StalenessMillis;
+		this.stalenessTargetMillis = stalenessTargetMillis;
+		this.entriesOverTarget = entriesOverTarget;
+	}
+
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	/**
+	 * @return number of registered entries in the cache, owned by this member
+	 *         when the refresh is partitioned
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	public long getMaxStalenessMillis() {
+		return maxStalenessMillis;
+	}
+
+	public long getP99StalenessMillis() {
+		return p99StalenessMillis;
+	}
+
+	/**
+	 * @return staleness target of the cache, 0 when none is set
+	 */
+	public long getStalenessTargetMillis() {
+		return stalenessTargetMillis;
+	}
+
+	/**
+	 * @return number of entries staler than the target, 0 when no target is
+	 *         set
+	 */
+	public int getEntriesOverTarget() {
+		return entriesOverTarget;
+	}
+
+	@Override
+	public String toString() {
+		return "StalenessReport [cacheName=" + cacheName + ", entries=" + entries + ", maxStalenessMillis="
+				+ maxStalenessMillis + ", p99StalenessMillis=" + p99StalenessMillis + ", stalenessTargetMillis="
+				+ stalenessTargetMillis + ", entriesOverTarget=" + entriesOverTarget + "]";
+	}
+}
@@ -1,11 +1,29 @@
 package io.github.yantrashala.springcache.tools;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -18,10 +36,13 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
 import org.springframework.cache.concurrent.ConcurrentMapCacheFactoryBean;
 import org.springframework.cache.interceptor.DefaultKeyGenerator;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -30,6 +51,7 @@ import org.springframework.context.annotation.EnableLoadTimeWeaving;
 import org.springframework.stereotype.Component;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.FileSystemUtils;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = { TestCacheOperations.TestConfiguration.class })
@@ -50,6 +72,18 @@ public class TestCacheOperations {
 	@Autowired
 	CacheManager cacheManager;
 
+	@Autowired
+	CacheSupportImpl cacheSupport;
+
+	@Autowired
+	PricingService pricingService;
+
+	@Autowired
+	KeyGenerator keyGenerator;
+
+	@Autowired
+	ApplicationContext applicationContext;
+
 	/**
 	 * Tests standard Spring cache to validate the setup
 	 */
@@ -95,6 +129,471 @@ public class TestCacheOperations {
 		assertEquals(response2, response1);
 	}
 
+	/**
+	 * Tests that refreshing an upstream cache refreshes the caches derived from
+	 * it, only after the upstream refresh completes.
+	 */
+	@Test
+	public void testDependentCacheRefreshedAfterUpstream() throws NoSuchMethodException {
+		CacheSupportImpl dependentSupport = newCacheSupport();
+		PricingServiceImpl target = new PricingServiceImpl();
+		register(dependentSupport, target, "product", "p-1");
+		register(dependentSupport, target, "fxRates", "EUR");
+		register(dependentSupport, target, "priceView", "p-1", "EUR");
+		dependentSupport.addCacheDependency("priceView", "product", "fxRates");
+		PricingServiceImpl.EXECUTIONS.clear();
+		dependentSupport.refreshCache("product");
+		assertEquals(Arrays.asList("product", "priceView"), PricingServiceImpl.EXECUTIONS);
+
+		PricingServiceImpl.EXECUTIONS.clear();
+		dependentSupport.refreshCaches("priceView", "fxRates", "product");
+		assertEquals(3, PricingServiceImpl.EXECUTIONS.size());
+		assertEquals("priceView", PricingServiceImpl.EXECUTIONS.get(2));
+	}
+
+	/**
+	 * Tests that a refresh started from a thread of a saturated refresh
+	 * executor completes.
+	 */
+	@Test
+	public void testRefreshFromRefreshExecutorThread() throws Exception {
+		CacheSupportImpl dependentSupport = newCacheSupport();
+		PricingServiceImpl target = new PricingServiceImpl();
+		register(dependentSupport, target, "product", "p-pool");
+		register(dependentSupport, target, "fxRates", "GBP");
+		register(dependentSupport, target, "priceView", "p-pool", "GBP");
+		dependentSupport.addCacheDependency("priceView", "product", "fxRates");
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			dependentSupport.setRefreshExecutor(executor);
+			dependentSupport.setRefreshParallelism(4);
+			PricingServiceImpl.EXECUTIONS.clear();
+			executor.submit(() -> dependentSupport.refreshCaches("product", "fxRates")).get(10, TimeUnit.SECONDS);
+			assertEquals(3, PricingServiceImpl.EXECUTIONS.size());
+			assertEquals("priceView", PricingServiceImpl.EXECUTIONS.get(2));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Tests that cyclic cache dependencies are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCyclicCacheDependencyRejected() {
+		CacheSupportImpl dependentSupport = newCacheSupport();
+		dependentSupport.addCacheDependency("priceView", "product");
+		dependentSupport.addCacheDependency("product", "priceView");
+	}
+
+	/**
+	 * Tests that refreshing by key, by arguments and by method touches only the
+	 * targeted entries.
+	 */
+	@Test
+	public void testTargetedRefresh() throws NoSuchMethodException {
+		String first = businessService.business("target1", "param2");
+		String second = businessService.business("target2", "param2");
+
+		cacheOperations.refreshCacheKeys(CACHE_NAME,
+				Collections.singleton(keyGenerator.generate(businessService, null, "target1", "param2")));
+		assertNotEquals(first, businessService.business("target1", "param2"));
+		assertEquals(second, businessService.business("target2", "param2"));
+
+		first = businessService.business("target1", "param2");
+		cacheOperations.refreshCacheMatchingArguments(CACHE_NAME, args -> "target2".equals(args[0]));
+		assertEquals(first, businessService.business("target1", "param2"));
+		assertNotEquals(second, businessService.business("target2", "param2"));
+
+		pricingService.fxRates("USD");
+		PricingServiceImpl.EXECUTIONS.clear();
+		cacheOperations.refreshMethod(PricingService.class.getMethod("fxRates", String.class));
+		assertFalse(PricingServiceImpl.EXECUTIONS.isEmpty());
+		assertEquals(Collections.singleton("fxRates"), new HashSet<String>(PricingServiceImpl.EXECUTIONS));
+	}
+
+	/**
+	 * Tests that a generational cache is refreshed into a new generation that
+	 * replaces the live one as a whole, retaining values that failed to
+	 * refresh.
+	 */
+	@Test
+	public void testGenerationSwapRefresh() {
+		String quote = pricingService.quote("ACME");
+		Object liveGeneration = cacheManager.getCache("quotes").getNativeCache();
+
+		PricingServiceImpl.quotesDown = true;
+		try {
+			cacheOperations.refreshCache("quotes");
+		} finally {
+			PricingServiceImpl.quotesDown = false;
+		}
+		assertEquals(quote, pricingService.quote("ACME"));
+		Map<?, ?> previousGeneration = (Map<?, ?>) cacheManager.getCache("quotes").getNativeCache();
+		assertNotSame(liveGeneration, previousGeneration);
+
+		cacheOperations.refreshCache("quotes");
+		assertNotEquals(quote, pricingService.quote("ACME"));
+		assertEquals(quote, previousGeneration.get(keyGenerator.generate(pricingService, null, "ACME")));
+	}
+
+	/**
+	 * Tests that entries evicted or cleared while a generation is being built
+	 * are not brought back when it is published.
+	 */
+	@Test
+	public void testEvictionDuringGenerationBuildKept() {
+		GenerationalCache cache = new GenerationalCache("generations");
+		cache.put("evicted", "old");
+		cache.put("kept", "old");
+		GenerationalCache.ShadowGeneration shadow = cache.newGeneration();
+		shadow.put("evicted", "new");
+		shadow.put("kept", "new");
+		cache.evict("evicted");
+		shadow.publish();
+		assertNull(cache.get("evicted"));
+		assertEquals("new", cache.get("kept").get());
+
+		shadow = cache.newGeneration();
+		shadow.put("kept", "newer");
+		cache.clear();
+		shadow.publish();
+		assertNull(cache.get("kept"));
+	}
+
+	/**
+	 * Tests that a partitioned node refreshes only the keys it owns, and takes
+	 * over the keys of members that leave.
+	 */
+	@Test
+	public void testPartitionedRefresh() throws IOException {
+		File membership = Files.createTempDirectory("members").toFile();
+		FileClusterCoordinator nodeA = new FileClusterCoordinator(membership, "node-a", 60000);
+		FileClusterCoordinator nodeB = new FileClusterCoordinator(membership, "node-b", 60000);
+		nodeA.join();
+		nodeB.join();
+		ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b"));
+		List<String> responses = new ArrayList<String>();
+		for (int i = 0; i < 20; i++) {
+			responses.add(businessService.business("partition" + i, "param2"));
+		}
+		cacheSupport.setClusterCoordinator(nodeA);
+		try {
+			cacheOperations.refreshCache(CACHE_NAME);
+			int owned = 0;
+			for (int i = 0; i < 20; i++) {
+				Object key = keyGenerator.generate(null, null, "partition" + i, "param2");
+				boolean ownedByA = "node-a".equals(ring.ownerOf(key));
+				String response = businessService.business("partition" + i, "param2");
+				assertEquals(ownedByA, !responses.get(i).equals(response));
+				responses.set(i, response);
+				owned += ownedByA ? 1 : 0;
+			}
+			assertTrue(owned > 0 && owned < 20);
+
+			nodeB.leave();
+			assertEquals(Collections.singletonList("node-a"), nodeB.getMembers());
+			cacheOperations.refreshCache(CACHE_NAME);
+			for (int i = 0; i < 20; i++) {
+				assertNotEquals(responses.get(i), businessService.business("partition" + i, "param2"));
+			}
+
+			nodeB.join();
+			assertEquals(2, nodeA.getMembers().size());
+		} finally {
+			cacheSupport.setClusterCoordinator(null);
+			FileSystemUtils.deleteRecursively(membership);
+		}
+	}
+
+	/**
+	 * Tests that entries going without refresh longer than the staleness target
+	 * are reported and refreshed.
+	 */
+	@Test
+	public void testStalenessTarget() throws InterruptedException {
+		pricingService.product("p-stale");
+		cacheSupport.setStalenessTarget("product", 50);
+		Thread.sleep(80);
+		StalenessReport report = cacheOperations.getStalenessReport("product");
+		assertTrue(report.getEntries() > 0);
+		assertEquals(report.getEntries(), report.getEntriesOverTarget());
+		assertTrue(report.getMaxStalenessMillis() >= 80);
+		assertTrue(report.getP99StalenessMillis() <= report.getMaxStalenessMillis());
+
+		PricingServiceImpl.EXECUTIONS.clear();
+		try {
+			cacheOperations.refreshStaleEntries();
+		} finally {
+			cacheSupport.setStalenessTarget("product", 0);
+		}
+		assertTrue(PricingServiceImpl.EXECUTIONS.contains("product"));
+		assertFalse(PricingServiceImpl.EXECUTIONS.contains("fxRates"));
+		assertEquals(0, cacheOperations.getStalenessReport("product").getEntriesOverTarget());
+	}
+
+	/**
+	 * Tests that only beans with @Cacheable methods are called back on
+	 * destruction.
+	 */
+	@Test
+	public void testOnlyCacheableBeansRequireDestruction() {
+		InvocationRegistryCleaner cleaner = new InvocationRegistryCleaner();
+		assertTrue(cleaner.requiresDestruction(pricingService));
+		assertTrue(cleaner.requiresDestruction(new PricingServiceImpl()));
+		assertFalse(cleaner.requiresDestruction(new Object()));
+		assertFalse(cleaner.requiresDestruction(cacheSupport));
+	}
+
+	/**
+	 * Tests that a stale invocation cached in several caches with staleness
+	 * targets is executed once, and that entries owned by another cluster
+	 * member are neither reported nor refreshed.
+	 */
+	@Test
+	public void testStaleEntriesRefreshedOnceByTheirOwner() throws Exception {
+		CacheSupportImpl staleSupport = newCacheSupport();
+		staleSupport.registerInvocation(new PricingServiceImpl(),
+				PricingServiceImpl.class.getMethod("listing", String.class), new Object[] { "l-stale" },
+				new HashSet<String>(Arrays.asList("catalog", "search")));
+		staleSupport.setStalenessTarget("catalog", 20);
+		staleSupport.setStalenessTarget("search", 20);
+		Thread.sleep(40);
+
+		PricingServiceImpl.EXECUTIONS.clear();
+		staleSupport.refreshStaleEntries();
+		assertEquals(Collections.singletonList("listing"), PricingServiceImpl.EXECUTIONS);
+
+		Thread.sleep(40);
+		staleSupport.setClusterCoordinator(new ClusterCoordinator() {
+			@Override
+			public String getLocalMemberId() {
+				return "node-a";
+			}
+
+			@Override
+			public Collection<String> getMembers() {
+				return Arrays.asList("node-b");
+			}
+		});
+		assertEquals(0, staleSupport.getStalenessReport("catalog").getEntries());
+		PricingServiceImpl.EXECUTIONS.clear();
+		staleSupport.refreshStaleEntries();
+		assertTrue(PricingServiceImpl.EXECUTIONS.isEmpty());
+	}
+
+	/**
+	 * Tests that listeners receive the outcome of refreshed keys.
+	 */
+	@Test
+	public void testRefreshEventsDelivered() throws InterruptedException {
+		final BlockingQueue<RefreshEvent> events = new LinkedBlockingQueue<RefreshEvent>();
+		final RefreshListener listener = batch -> events.addAll(batch);
+		cacheSupport.addRefreshListener(listener);
+		try {
+			businessService.business("event1", "param2");
+			Object key = keyGenerator.generate(businessService, null, "event1", "param2");
+
+			cacheOperations.refreshCacheKeys(CACHE_NAME, Collections.singleton(key));
+			RefreshEvent event = events.poll(5, TimeUnit.SECONDS);
+			assertEquals(CACHE_NAME, event.getCacheName());
+			assertEquals(key, event.getKey());
+			assertEquals(RefreshEvent.Outcome.CHANGED, event.getOutcome());
+
+			pricingService.quote("EVNT");
+			events.clear();
+			PricingServiceImpl.quotesDown = true;
+			try {
+				cacheOperations.refreshCache("quotes");
+			} finally {
+				PricingServiceImpl.quotesDown = false;
+			}
+			event = events.poll(5, TimeUnit.SECONDS);
+			assertEquals("quotes", event.getCacheName());
+			assertEquals(RefreshEvent.Outcome.FAILED, event.getOutcome());
+
+			Object quoteKey = keyGenerator.generate(pricingService, null, "EVNT");
+			PricingServiceImpl.quotesFrozen = true;
+			try {
+				cacheOperations.refreshCache("quotes");
+				do {
+					event = events.poll(5, TimeUnit.SECONDS);
+				} while (!quoteKey.equals(event.getKey()) || event.getOutcome() == RefreshEvent.Outcome.FAILED);
+				cacheOperations.refreshCache("quotes");
+			} finally {
+				PricingServiceImpl.quotesFrozen = false;
+			}
+			do {
+				event = events.poll(5, TimeUnit.SECONDS);
+			} while (!quoteKey.equals(event.getKey()));
+			assertEquals(RefreshEvent.Outcome.UNCHANGED, event.getOutcome());
+		} finally {
+			cacheSupport.removeRefreshListener(listener);
+		}
+	}
+
+	/**
+	 * Tests that refreshing all caches writes each invocation only to the
+	 * caches its method is annotated with.
+	 */
+	@Test
+	public void testRefreshWritesOnlyToTargetCaches() {
+		String response = businessService.business("routed", "param2");
+		Object key = keyGenerator.generate(businessService, null, "routed", "param2");
+		cacheOperations.refreshAllCaches();
+		assertNotEquals(response, businessService.business("routed", "param2"));
+		for (String cacheName : Arrays.asList("product", "fxRates", "priceView", "quotes")) {
+			assertNull(cacheManager.getCache(cacheName).get(key));
+		}
+	}
+
+	/**
+	 * Tests that a cache derived from a cache sharing its invocation with
+	 * another one is refreshed from the refreshed value, whichever stage
+	 * executes the shared invocation.
+	 */
+	@Test
+	public void testDependentOfSharedInvocationSeesRefreshedValue() throws Exception {
+		CacheSupportImpl dependentSupport = newCacheSupport();
+		ListingSummaryService target = new ListingSummaryService(cacheManager.getCache("search"), keyGenerator);
+		dependentSupport.registerInvocation(target, ListingSummaryService.class.getMethod("listing", String.class),
+				new Object[] { "l-shared" }, new HashSet<String>(Arrays.asList("catalog", "search")));
+		dependentSupport.registerInvocation(target, ListingSummaryService.class.getMethod("summary", String.class),
+				new Object[] { "l-shared" }, Collections.singleton("priceView"));
+		dependentSupport.addCacheDependency("priceView", "search");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			dependentSupport.setRefreshExecutor(executor);
+			dependentSupport.setRefreshParallelism(4);
+			dependentSupport.refreshCaches("catalog", "search");
+		} finally {
+			executor.shutdownNow();
+		}
+		Object key = keyGenerator.generate(target, null, "l-shared");
+		Object listing = cacheManager.getCache("search").get(key).get();
+		assertEquals(listing, cacheManager.getCache("catalog").get(key).get());
+		assertEquals("summary of " + listing, cacheManager.getCache("priceView").get(key).get());
+	}
+
+	/**
+	 * Tests that methods called with the same arguments, and so the same cache
+	 * key, each refresh their own cache with their own result.
+	 */
+	@Test
+	public void testSameKeyInDifferentMethods() {
+		pricingService.product("shared");
+		pricingService.fxRates("shared");
+		Object key = keyGenerator.generate(pricingService, null, "shared");
+		cacheOperations.refreshCaches("product", "fxRates");
+		assertTrue(((String) cacheManager.getCache("product").get(key).get()).startsWith("product shared"));
+		assertTrue(((String) cacheManager.getCache("fxRates").get(key).get()).startsWith("rate shared"));
+		cacheOperations.refreshCacheKeys("fxRates", Collections.singleton(key));
+		assertTrue(((String) cacheManager.getCache("fxRates").get(key).get()).startsWith("rate shared"));
+	}
+
+	/**
+	 * Tests that an invocation cached in several caches is executed once when
+	 * those caches are refreshed together, and its result written to each.
+	 */
+	@Test
+	public void testSharedInvocationRefreshedOnce() {
+		String listing = pricingService.listing("l-1");
+		Object key = keyGenerator.generate(pricingService, null, "l-1");
+		PricingServiceImpl.EXECUTIONS.clear();
+		cacheOperations.refreshCaches("catalog", "search");
+		assertEquals(Collections.singletonList("listing"), PricingServiceImpl.EXECUTIONS);
+		Object catalogValue = cacheManager.getCache("catalog").get(key).get();
+		assertNotEquals(listing, catalogValue);
+		assertEquals(catalogValue, cacheManager.getCache("search").get(key).get());
+	}
+
+	/**
+	 * Tests that the invocations recorded on a destroyed bean are no longer
+	 * registered.
+	 */
+	@Test
+	public void testUnregisterInvocations() throws NoSuchMethodException {
+		PricingServiceImpl target = new PricingServiceImpl();
+		Method method = PricingServiceImpl.class.getMethod("product", String.class);
+		cacheSupport.registerInvocation(target, method, new Object[] { "p-destroyed" },
+				Collections.singleton("product"));
+		assertTrue(isRegistered(keyGenerator.generate(target, method, "p-destroyed")));
+		cacheSupport.unregisterInvocations(target);
+		assertFalse(isRegistered(keyGenerator.generate(target, method, "p-destroyed")));
+		cacheOperations.refreshCache("product");
+	}
+
+	/**
+	 * Tests that destroying a bean does not unregister the entry of a key
+	 * another live bean has since been called with.
+	 */
+	@Test
+	public void testUnregisterKeepsOtherBeansInvocations() throws NoSuchMethodException {
+		PricingServiceImpl first = new PricingServiceImpl();
+		PricingServiceImpl second = new PricingServiceImpl();
+		Method method = PricingServiceImpl.class.getMethod("product", String.class);
+		Object key = keyGenerator.generate(first, method, "p-shared");
+		cacheSupport.registerInvocation(first, method, new Object[] { "p-shared" }, Collections.singleton("product"));
+		cacheSupport.registerInvocation(second, method, new Object[] { "p-shared" }, Collections.singleton("product"));
+		cacheSupport.unregisterInvocations(first);
+		assertTrue(isRegistered(key));
+		cacheOperations.refreshCacheKeys("product", Collections.singleton(key));
+		assertTrue(((String) cacheManager.getCache("product").get(key).get()).startsWith("product p-shared"));
+		cacheSupport.unregisterInvocations(second);
+		assertFalse(isRegistered(key));
+	}
+
+	/**
+	 * Tests that closing a child context unregisters the invocations recorded
+	 * on its beans.
+	 */
+	@Test
+	public void testChildContextCloseUnregistersInvocations() throws NoSuchMethodException {
+		AnnotationConfigApplicationContext child = new AnnotationConfigApplicationContext();
+		child.setParent(applicationContext);
+		child.registerBean(PricingServiceImpl.class);
+		child.refresh();
+		PricingServiceImpl target = child.getBean(PricingServiceImpl.class);
+		Method method = PricingServiceImpl.class.getMethod("product", String.class);
+		cacheSupport.registerInvocation(target, method, new Object[] { "p-child" }, Collections.singleton("product"));
+		assertTrue(isRegistered(keyGenerator.generate(target, method, "p-child")));
+		child.close();
+		assertFalse(isRegistered(keyGenerator.generate(target, method, "p-child")));
+	}
+
+	/**
+	 * Cache dependencies can not be removed, tests declaring them use their own
+	 * registry so that they do not leak into the other tests.
+	 */
+	private CacheSupportImpl newCacheSupport() {
+		CacheSupportImpl support = new CacheSupportImpl();
+		support.setCacheManager(cacheManager);
+		support.setKeyGenerator(keyGenerator);
+		support.initialize();
+		return support;
+	}
+
+	/**
+	 * Registers an invocation of the PricingServiceImpl method named after the
+	 * cache it fills.
+	 */
+	private void register(CacheSupportImpl support, PricingServiceImpl target, String cacheName, Object... arguments)
+			throws NoSuchMethodException {
+		Class<?>[] parameterTypes = new Class<?>[arguments.length];
+		Arrays.fill(parameterTypes, String.class);
+		support.registerInvocation(target, PricingServiceImpl.class.getMethod(cacheName, parameterTypes), arguments,
+				Collections.singleton(cacheName));
+	}
+
+	private boolean isRegistered(Object key) {
+		for (CacheSupportImpl.CachedInvocation invocation : cacheSupport.getCacheGrid().get("product")) {
+			if (invocation.getKey().equals(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Uses simple cache setup and default keygenerator to setup Spring cache
 	 * abstraction.
@@ -113,6 +612,10 @@ public class TestCacheOperations {
 			SimpleCacheManager cacheManager = new SimpleCacheManager();
 			List<Cache> caches = new ArrayList<Cache>();
 			caches.add(cacheBean().getObject());
+			for (String cacheName : Arrays.asList("product", "fxRates", "priceView", "catalog", "search")) {
+				caches.add(new ConcurrentMapCache(cacheName));
+			}
+			caches.add(new GenerationalCache("quotes"));
 			cacheManager.setCaches(caches);
 			return cacheManager;
 		}
@@ -199,6 +702,93 @@ interface UnstableBusinessService {
 	void setDown(boolean down);
 }
 
+/**
+ * Service with caches derived from other caches, recording the order of its
+ * executions.
+ */
+@Component("pricingService")
+class PricingServiceImpl implements PricingService {
+
+	static final List<String> EXECUTIONS = Collections.synchronizedList(new ArrayList<String>());
+
+	static volatile boolean quotesDown = false;
+
+	static volatile boolean quotesFrozen = false;
+
+	@Cacheable(value = "product")
+	public String product(String productId) {
+		EXECUTIONS.add("product");
+		return "product " + productId + " " + new Random().nextInt();
+	}
+
+	@Cacheable(value = "fxRates")
+	public String fxRates(String currency) {
+		EXECUTIONS.add("fxRates");
+		return "rate " + currency + " " + new Random().nextInt();
+	}
+
+	@Cacheable(value = "priceView")
+	public String priceView(String productId, String currency) {
+		EXECUTIONS.add("priceView");
+		return "price " + productId + " " + currency + " " + new Random().nextInt();
+	}
+
+	@Cacheable(value = { "catalog", "search" })
+	public String listing(String listingId) {
+		EXECUTIONS.add("listing");
+		return "listing " + listingId + " " + new Random().nextInt();
+	}
+
+	@Cacheable(value = "quotes")
+	public String quote(String symbol) {
+		if (quotesDown) {
+			throw new RuntimeException("Quotes down");
+		}
+		if (quotesFrozen) {
+			return "quote " + symbol;
+		}
+		return "quote " + symbol + " " + new Random().nextInt();
+	}
+}
+
+/**
+ * Service with a slow invocation cached in two caches, and a cache derived
+ * from one of them.
+ */
+class ListingSummaryService {
+
+	private final Cache search;
+
+	private final KeyGenerator keyGenerator;
+
+	ListingSummaryService(Cache search, KeyGenerator keyGenerator) {
+		this.search = search;
+		this.keyGenerator = keyGenerator;
+	}
+
+	public String listing(String listingId) throws InterruptedException {
+		Thread.sleep(200);
+		return "listing " + listingId + " " + new Random().nextInt();
+	}
+
+	public String summary(String listingId) {
+		Cache.ValueWrapper listing = search.get(keyGenerator.generate(this, null, listingId));
+		return "summary of " + (listing != null ? listing.get() : null);
+	}
+}
+
+interface PricingService {
+	String product(String productId);
+
+	String fxRates(String currency);
+
+	String priceView(String productId, String currency);
+
+	String quote(String symbol);
+
+	String listing(String listingId);
+}
+
 /**
  * Advice to allow watching the Business service invocations. Passes the
  * invocations to CachingAnnotationsAspect
@@ -214,10 +804,14 @@ class TestAdvice {
 	public void methodsToBeInspected() {
 	}
 
+	@Pointcut("execution(public * io.github.yantrashala.springcache.tools.PricingService.*(..))")
+	public void pricingMethodsToBeInspected() {
+	}
+
 	@Autowired
 	CachingAnnotationsAspect cachingAnnotationsAspect;
 
-	@Around("methodsToBeInspected()")
+	@Around("methodsToBeInspected() || pricingMethodsToBeInspected()")
 	public Object interceptCaches(ProceedingJoinPoint joinPoint) throws Throwable {
 		return cachingAnnotationsAspect.interceptCacheables(joinPoint);
 	}
@@ -0,0 +1,215 @@
+package io.github.yantrashala.springcache.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+
+/**
+ * Tests the two tier near cache and its refresh through CacheSupportImpl.
+ */
+public class TestNearCache {
+
+	private static final String CACHE_NAME = "near";
+
+	private ConcurrentMapCacheManager remoteCacheManager;
+
+	private NearCacheManager nearCacheManager;
+
+	@Before
+	public void setUp() {
+		remoteCacheManager = new ConcurrentMapCacheManager(CACHE_NAME);
+		nearCacheManager = new NearCacheManager(remoteCacheManager, 2);
+	}
+
+	/**
+	 * Tests that local hits do not read the remote tier and that writes reach
+	 * both tiers.
+	 */
+	@Test
+	public void testReadsServedLocally() {
+		NearCache cache = (NearCache) nearCacheManager.getCache(CACHE_NAME);
+		cache.put("key", "value");
+		assertEquals("value", remoteCache().get("key"));
+
+		remoteCache().put("key", "changed remotely");
+		assertEquals("value", cache.get("key", String.class));
+
+		cache.evictLocal("key");
+		assertEquals("changed remotely", cache.get("key", String.class));
+
+		cache.evict("key");
+		assertNull(cache.get("key"));
+		assertNull(remoteCache().get("key"));
+	}
+
+	/**
+	 * Tests that the local tier holds no more than its maximum number of
+	 * entries.
+	 */
+	@Test
+	public void testLocalTierBounded() {
+		NearCache cache = (NearCache) nearCacheManager.getCache(CACHE_NAME);
+		for (int i = 0; i < 10; i++) {
+			cache.put("key" + i, "value" + i);
+		}
+		assertEquals(2, cache.getLocalSize());
+		assertEquals(10, remoteCache().size());
+		assertEquals("value0", cache.get("key0", String.class));
+	}
+
+	/**
+	 * Tests that a local tier split in segments holds no more than its maximum
+	 * number of entries and keeps the recently used ones.
+	 */
+	@Test
+	public void testSegmentedLocalTierBounded() {
+		NearCache cache = new NearCache(remoteCacheManager.getCache(CACHE_NAME), 1024);
+		for (int i = 0; i < 4096; i++) {
+			cache.put("key" + i, "value" + i);
+		}
+		assertTrue(cache.getLocalSize() <= 1024);
+		assertTrue(cache.getLocalSize() >= 1024 - 16);
+
+		remoteCache().put("key4095", "changed remotely");
+		assertEquals("value4095", cache.get("key4095", String.class));
+	}
+
+	/**
+	 * Tests that the local tier evicts the least recently used entry, however
+	 * often its keys have been evicted and read again.
+	 */
+	@Test
+	public void testLocalTierEvictsLeastRecentlyUsed() {
+		NearCache cache = (NearCache) nearCacheManager.getCache(CACHE_NAME);
+		for (int i = 0; i < 100; i++) {
+			cache.put("key0", "value0");
+			cache.evictLocal("key0");
+			cache.get("key0");
+		}
+		cache.put("key1", "value1");
+		cache.get("key0");
+		cache.put("key2", "value2");
+		assertEquals(2, cache.getLocalSize());
+
+		remoteCache().put("key0", "changed remotely");
+		remoteCache().put("key1", "changed remotely");
+		assertEquals("value0", cache.get("key0", String.class));
+		assertEquals("changed remotely", cache.get("key1", String.class));
+	}
+
+	/**
+	 * Tests that a value read from the remote tier does not replace locally a
+	 * newer value written while it was being read.
+	 */
+	@Test
+	public void testStaleReadNotCopiedLocally() {
+		final NearCache[] near = new NearCache[1];
+		ConcurrentMapCache remote = new ConcurrentMapCache(CACHE_NAME) {
+			@Override
+			public ValueWrapper get(Object key) {
+				ValueWrapper old = super.get(key);
+				near[0].put(key, "refreshed");
+				return old;
+			}
+		};
+		remote.put("key", "old");
+		near[0] = new NearCache(remote, 2);
+		assertEquals("old", near[0].get("key", String.class));
+		assertEquals("refreshed", near[0].get("key", String.class));
+	}
+
+	/**
+	 * Tests that a local copy is read again from the remote tier once its time
+	 * to live has elapsed.
+	 */
+	@Test
+	public void testLocalCopyExpires() throws InterruptedException {
+		NearCache cache = (NearCache) new NearCacheManager(remoteCacheManager, 2, 50).getCache(CACHE_NAME);
+		cache.put("key", "value");
+		remoteCache().put("key", "changed remotely");
+		assertEquals("value", cache.get("key", String.class));
+
+		Thread.sleep(100);
+		assertEquals("changed remotely", cache.get("key", String.class));
+	}
+
+	/**
+	 * Tests that refreshing updates both tiers.
+	 */
+	@Test
+	public void testRefreshUpdatesBothTiers() throws NoSuchMethodException {
+		CacheSupportImpl cacheSupport = new CacheSupportImpl();
+		cacheSupport.setCacheManager(nearCacheManager);
+		cacheSupport.setKeyGenerator(new SimpleKeyGenerator());
+		cacheSupport.initialize();
+
+		Counter counter = new Counter();
+		Method next = Counter.class.getMethod("next", String.class);
+		cacheSupport.registerInvocation(counter, next, new Object[] { "key" }, Collections.singleton(CACHE_NAME));
+		NearCache cache = (NearCache) nearCacheManager.getCache(CACHE_NAME);
+		cache.put("key", counter.next("key"));
+
+		cacheSupport.refreshCache(CACHE_NAME);
+		assertEquals("key 2", cache.get("key", String.class));
+		assertEquals("key 2", remoteCache().get("key"));
+	}
+
+	/**
+	 * Tests that generational caches are left undecorated, so that refreshing
+	 * them still swaps their generation.
+	 */
+	@Test
+	public void testGenerationalCacheNotNearCached() throws NoSuchMethodException {
+		SimpleCacheManager generationalCacheManager = new SimpleCacheManager();
+		generationalCacheManager.setCaches(Collections.singleton(new GenerationalCache(CACHE_NAME)));
+		generationalCacheManager.initializeCaches();
+		nearCacheManager = new NearCacheManager(generationalCacheManager, 2);
+		GenerationalCache cache = (GenerationalCache) nearCacheManager.getCache(CACHE_NAME);
+
+		CacheSupportImpl cacheSupport = new CacheSupportImpl();
+		cacheSupport.setCacheManager(nearCacheManager);
+		cacheSupport.setKeyGenerator(new SimpleKeyGenerator());
+		cacheSupport.initialize();
+		Counter counter = new Counter();
+		cacheSupport.registerInvocation(counter, Counter.class.getMethod("next", String.class),
+				new Object[] { "key" }, Collections.singleton(CACHE_NAME));
+		cache.put("key", counter.next("key"));
+		Map<Object, Object> previousGeneration = cache.getNativeCache();
+
+		cacheSupport.refreshCache(CACHE_NAME);
+		assertEquals("key 2", cache.get("key", String.class));
+		assertEquals("key 1", previousGeneration.get("key"));
+	}
+
+	/**
+	 * Tests that a generational cache can not be hidden behind a near cache.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNearGenerationalCacheRejected() {
+		new NearCache(new GenerationalCache(CACHE_NAME), 2);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Object, Object> remoteCache() {
+		return ((ConcurrentMapCache) remoteCacheManager.getCache(CACHE_NAME)).getNativeCache();
+	}
+
+	public static class Counter {
+		private int count;
+
+		public String next(String key) {
+			return key + " " + ++count;
+		}
+	}
+}
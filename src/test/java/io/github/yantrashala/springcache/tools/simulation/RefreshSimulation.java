@@ -0,0 +1,235 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import io.github.yantrashala.springcache.tools.CacheOperations;
+import io.github.yantrashala.springcache.tools.CacheSupportImpl;
+import io.github.yantrashala.springcache.tools.GenerationalCache;
+import io.github.yantrashala.springcache.tools.simulation.UnstableRemote.RemoteValue;
+
+/**
+ * Runs readers with Zipfian key popularity against the unstable remote,
+ * through the real CachingAnnotationsAspect and CacheSupportImpl, while a
+ * refresher applies the refresh strategy at a fixed interval. Reports refresh
+ * throughput, remote load, the age of the values served to the readers, and
+ * the heap the run took at its peak and still retains once it is over.
+ */
+public class RefreshSimulation {
+
+	static final String CACHE_NAME = "simulation";
+
+	/**
+	 * Staleness above this is recorded as this
+	 */
+	private static final int MAX_RECORDED_STALENESS_MILLIS = 60000;
+
+	private static final long HEAP_SAMPLE_MILLIS = 5;
+
+	private final String name;
+
+	private final UnstableRemote remote = new UnstableRemote();
+
+	private int keyCount = 1000;
+
+	private double zipfExponent = 1;
+
+	private int readers = 4;
+
+	private long readPauseMicros = 50;
+
+	private long durationMillis = 5000;
+
+	private long refreshIntervalMillis = 500;
+
+	private boolean generationalCache;
+
+	private Executor refreshExecutor;
+
+	private int refreshParallelism;
+
+	private Consumer<CacheOperations> refreshStrategy = operations -> operations.refreshCache(CACHE_NAME);
+
+	public RefreshSimulation(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the remote, to configure its latency and failures
+	 */
+	public UnstableRemote getRemote() {
+		return remote;
+	}
+
+	/**
+	 * Runs the simulation for the configured duration.
+	 * 
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public SimulationReport run() throws InterruptedException {
+		final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		final Cache cache = generationalCache ? new GenerationalCache(CACHE_NAME)
+				: new ConcurrentMapCache(CACHE_NAME);
+		context.getBeanFactory().registerSingleton("unstableRemote", remote);
+		context.getBeanFactory().registerSingleton("simulationCache", cache);
+		context.register(SimulationConfiguration.class);
+		context.refresh();
+		try {
+			final CacheSupportImpl cacheSupport = context.getBean(CacheSupportImpl.class);
+			if (refreshExecutor != null) {
+				cacheSupport.setRefreshExecutor(refreshExecutor);
+			}
+			if (refreshParallelism > 0) {
+				cacheSupport.setRefreshParallelism(refreshParallelism);
+			}
+			return simulate(context.getBean(SimulatedRemoteService.class), context.getBean(CacheOperations.class));
+		} finally {
+			context.close();
+		}
+	}
+
+	private SimulationReport simulate(final SimulatedRemoteService service, final CacheOperations operations)
+			throws InterruptedException {
+		final ZipfianKeys keys = new ZipfianKeys(keyCount, zipfExponent);
+		final long endMillis = System.currentTimeMillis() + durationMillis;
+		final AtomicLong reads = new AtomicLong();
+		final AtomicLong readFailures = new AtomicLong();
+		final AtomicLong refreshPasses = new AtomicLong();
+		final List<long[]> histograms = new ArrayList<long[]>(readers);
+		final List<Thread> threads = new ArrayList<Thread>(readers + 2);
+		for (int i = 0; i < readers; i++) {
+			final long[] histogram = new long[MAX_RECORDED_STALENESS_MILLIS + 1];
+			histograms.add(histogram);
+			threads.add(new Thread(() -> {
+				remote.markReaderThread();
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (System.currentTimeMillis() < endMillis) {
+					try {
+						final RemoteValue value = service.fetch(keys.next(random));
+						final long staleness = System.currentTimeMillis() - value.getFetchedAtMillis();
+						histogram[(int) Math.min(staleness, MAX_RECORDED_STALENESS_MILLIS)]++;
+						reads.incrementAndGet();
+					} catch (final RuntimeException e) {
+						readFailures.incrementAndGet();
+					}
+					LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(readPauseMicros));
+				}
+			}, name + "-reader-" + i));
+		}
+		threads.add(new Thread(() -> {
+			while (System.currentTimeMillis() < endMillis) {
+				refreshStrategy.accept(operations);
+				refreshPasses.incrementAndGet();
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis));
+			}
+		}, name + "-refresher"));
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		final AtomicLong peakHeapBytes = new AtomicLong();
+		threads.add(new Thread(() -> {
+			while (System.currentTimeMillis() < endMillis) {
+				peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(HEAP_SAMPLE_MILLIS));
+			}
+		}, name + "-heap-sampler"));
+
+		final long baselineHeapBytes = heapAfterGc(memory);
+		final long startMillis = System.currentTimeMillis();
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		final long elapsedMillis = System.currentTimeMillis() - startMillis;
+
+		final long[] staleness = new long[MAX_RECORDED_STALENESS_MILLIS + 1];
+		for (final long[] histogram : histograms) {
+			for (int millis = 0; millis < histogram.length; millis++) {
+				staleness[millis] += histogram[millis];
+			}
+		}
+		// The cache is still referenced by the context, so what survives a
+		// collection is what the run keeps between refreshes
+		return new SimulationReport(name, elapsedMillis, reads.get(), readFailures.get(), refreshPasses.get(),
+				remote.getRefreshCalls(), remote.getReaderCalls(), remote.getFailures(), staleness,
+				Math.max(0, peakHeapBytes.get() - baselineHeapBytes),
+				Math.max(0, heapAfterGc(memory) - baselineHeapBytes));
+	}
+
+	/**
+	 * @param memory
+	 * @return heap used after a requested full collection, approximate as the
+	 *         JVM may ignore or defer the request
+	 */
+	private static long heapAfterGc(MemoryMXBean memory) {
+		memory.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	public void setKeyCount(int keyCount) {
+		this.keyCount = keyCount;
+	}
+
+	public void setZipfExponent(double zipfExponent) {
+		this.zipfExponent = zipfExponent;
+	}
+
+	public void setReaders(int readers) {
+		this.readers = readers;
+	}
+
+	/**
+	 * @param readPauseMicros
+	 *            pause of every reader between two reads
+	 */
+	public void setReadPauseMicros(long readPauseMicros) {
+		this.readPauseMicros = readPauseMicros;
+	}
+
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+		this.refreshIntervalMillis = refreshIntervalMillis;
+	}
+
+	/**
+	 * @param generationalCache
+	 *            true to back the cache with a GenerationalCache, refreshed by
+	 *            generation swap
+	 */
+	public void setGenerationalCache(boolean generationalCache) {
+		this.generationalCache = generationalCache;
+	}
+
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	public void setRefreshParallelism(int refreshParallelism) {
+		this.refreshParallelism = refreshParallelism;
+	}
+
+	/**
+	 * @param refreshStrategy
+	 *            refresh applied at every interval, refreshes the whole cache
+	 *            by default
+	 */
+	public void setRefreshStrategy(Consumer<CacheOperations> refreshStrategy) {
+		this.refreshStrategy = refreshStrategy;
+	}
+}
@@ -0,0 +1,12 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import io.github.yantrashala.springcache.tools.simulation.UnstableRemote.RemoteValue;
+
+/**
+ * Cached facade of the unstable remote, intercepted by the
+ * CachingAnnotationsAspect.
+ */
+public interface SimulatedRemoteService {
+
+	RemoteValue fetch(String key);
+}
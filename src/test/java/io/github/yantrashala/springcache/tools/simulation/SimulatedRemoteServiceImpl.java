@@ -0,0 +1,19 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import org.springframework.cache.annotation.Cacheable;
+
+import io.github.yantrashala.springcache.tools.simulation.UnstableRemote.RemoteValue;
+
+class SimulatedRemoteServiceImpl implements SimulatedRemoteService {
+
+	private final UnstableRemote remote;
+
+	SimulatedRemoteServiceImpl(UnstableRemote remote) {
+		this.remote = remote;
+	}
+
+	@Cacheable(value = RefreshSimulation.CACHE_NAME)
+	public RemoteValue fetch(String key) {
+		return remote.fetch(key);
+	}
+}
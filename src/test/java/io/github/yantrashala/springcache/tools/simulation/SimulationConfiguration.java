@@ -0,0 +1,70 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import java.util.Collections;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+
+import io.github.yantrashala.springcache.tools.CacheSupportImpl;
+import io.github.yantrashala.springcache.tools.CachingAnnotationsAspect;
+
+/**
+ * Wires the real CachingAnnotationsAspect and CacheSupportImpl in front of the
+ * simulated remote. Registered explicitly by RefreshSimulation, not annotated
+ * with Configuration so that component scans of the tools package leave it
+ * out.
+ */
+@EnableCaching
+@EnableAspectJAutoProxy
+@Import({ CacheSupportImpl.class, CachingAnnotationsAspect.class })
+class SimulationConfiguration {
+
+	@Bean
+	public CacheManager cacheManager(Cache simulationCache) {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Collections.singletonList(simulationCache));
+		return cacheManager;
+	}
+
+	@Bean
+	public KeyGenerator keyGenerator() {
+		return new SimpleKeyGenerator();
+	}
+
+	@Bean
+	public SimulatedRemoteService remoteService(UnstableRemote unstableRemote) {
+		return new SimulatedRemoteServiceImpl(unstableRemote);
+	}
+
+	@Bean
+	public SimulationAdvice simulationAdvice() {
+		return new SimulationAdvice();
+	}
+
+	/**
+	 * Passes the simulated remote service invocations to
+	 * CachingAnnotationsAspect
+	 */
+	@Aspect
+	static class SimulationAdvice {
+
+		@Autowired
+		CachingAnnotationsAspect cachingAnnotationsAspect;
+
+		@Around("execution(public * io.github.yantrashala.springcache.tools.simulation.SimulatedRemoteService.*(..))")
+		public Object interceptCaches(ProceedingJoinPoint joinPoint) throws Throwable {
+			return cachingAnnotationsAspect.interceptCacheables(joinPoint);
+		}
+	}
+}
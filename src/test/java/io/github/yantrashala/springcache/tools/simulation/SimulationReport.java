@@ -0,0 +1,124 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+/**
+ * Measurements of one simulation run.
+ */
+public class SimulationReport {
+
+	private final String name;
+	private final long durationMillis;
+	private final long reads;
+	private final long readFailures;
+	private final long refreshPasses;
+	private final long refreshCalls;
+	private final long readerCalls;
+	private final long remoteFailures;
+	private final long[] stalenessHistogram;
+	private final long peakHeapBytes;
+	private final long retainedHeapBytes;
+
+	SimulationReport(String name, long durationMillis, long reads, long readFailures, long refreshPasses,
+			long refreshCalls, long readerCalls, long remoteFailures, long[] stalenessHistogram, long peakHeapBytes,
+			long retainedHeapBytes) {
+		this.name = name;
+		this.durationMillis = durationMillis;
+		this.reads = reads;
+		this.readFailures = readFailures;
+		this.refreshPasses = refreshPasses;
+		this.refreshCalls = refreshCalls;
+		this.readerCalls = readerCalls;
+		this.remoteFailures = remoteFailures;
+		this.stalenessHistogram = stalenessHistogram;
+		this.peakHeapBytes = peakHeapBytes;
+		this.retainedHeapBytes = retainedHeapBytes;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	public long getReadFailures() {
+		return readFailures;
+	}
+
+	public long getRefreshPasses() {
+		return refreshPasses;
+	}
+
+	/**
+	 * @return entries re-executed by the refresher per second
+	 */
+	public double getRefreshThroughput() {
+		return perSecond(refreshCalls);
+	}
+
+	/**
+	 * @return calls reaching the remote per second, refreshes and cache misses
+	 *         together
+	 */
+	public double getRemoteCallsPerSecond() {
+		return perSecond(refreshCalls + readerCalls);
+	}
+
+	public long getRemoteFailures() {
+		return remoteFailures;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return age of the served values, in milliseconds, below which the given
+	 *         percentage of the reads fall
+	 */
+	public long getStalenessPercentile(double percentile) {
+		long total = 0;
+		for (final long count : stalenessHistogram) {
+			total += count;
+		}
+		final long threshold = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int millis = 0; millis < stalenessHistogram.length; millis++) {
+			seen += stalenessHistogram[millis];
+			if (seen >= threshold && seen > 0) {
+				return millis;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return highest heap use sampled during the run, above the heap used
+	 *         after a collection before it, garbage included
+	 */
+	public long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	/**
+	 * @return heap still used after a collection at the end of the run, above
+	 *         the heap used after a collection before it. Approximate, small
+	 *         differences are within the noise of the collector.
+	 */
+	public long getRetainedHeapBytes() {
+		return retainedHeapBytes;
+	}
+
+	private double perSecond(long count) {
+		return count * 1000.0 / durationMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"SimulationReport [%s: reads=%d readFailures=%d refreshPasses=%d refreshThroughput=%.1f/s "
+						+ "remoteCalls=%.1f/s remoteFailures=%d staleness p50=%dms p99=%dms max=%dms "
+						+ "peakHeap=%dKB retainedHeap=%dKB]",
+				name, reads, readFailures, refreshPasses, getRefreshThroughput(), getRemoteCallsPerSecond(),
+				remoteFailures, getStalenessPercentile(50), getStalenessPercentile(99), getStalenessPercentile(100),
+				peakHeapBytes / 1024, retainedHeapBytes / 1024);
+	}
+}
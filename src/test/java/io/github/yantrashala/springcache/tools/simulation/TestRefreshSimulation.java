@@ -0,0 +1,93 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares refresh strategies against an unstable remote. Kept short to run
+ * with the build, increase the durations to compare strategies in earnest.
+ */
+public class TestRefreshSimulation {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TestRefreshSimulation.class);
+
+	/**
+	 * Serial refresh of a plain cache
+	 */
+	@Test
+	public void testSerialRefresh() throws InterruptedException {
+		SimulationReport report = simulation("serial").run();
+		LOGGER.info("{}", report);
+		assertSane(report);
+	}
+
+	/**
+	 * Runs both strategies under the same load and compares them: refreshing
+	 * in parallel must get through more entries per second than refreshing
+	 * serially against the same remote latency.
+	 */
+	@Test
+	public void testStrategiesCompared() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			SimulationReport serial = simulation("serial").run();
+			SimulationReport generationSwap = generationSwapSimulation(executor).run();
+			LOGGER.info("Compared:\n  {}\n  {}", serial, generationSwap);
+			assertSane(serial);
+			assertSane(generationSwap);
+			assertTrue(generationSwap.getRefreshThroughput() > serial.getRefreshThroughput());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parallel generation-swap refresh of a generational cache
+	 */
+	@Test
+	public void testGenerationSwapRefresh() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			SimulationReport report = generationSwapSimulation(executor).run();
+			LOGGER.info("{}", report);
+			assertSane(report);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static RefreshSimulation simulation(String name) {
+		RefreshSimulation simulation = new RefreshSimulation(name);
+		simulation.setKeyCount(200);
+		simulation.setReaders(2);
+		simulation.setDurationMillis(1500);
+		simulation.setRefreshIntervalMillis(100);
+		simulation.getRemote().setLatency(1, 0.5);
+		simulation.getRemote().setErrorRate(0.01);
+		simulation.getRemote().setErrorBursts(0.001, 20);
+		simulation.getRemote().setOutages(1000, 200);
+		return simulation;
+	}
+
+	private static RefreshSimulation generationSwapSimulation(ExecutorService executor) {
+		RefreshSimulation simulation = simulation("generation-swap");
+		simulation.setGenerationalCache(true);
+		simulation.setRefreshExecutor(executor);
+		simulation.setRefreshParallelism(4);
+		return simulation;
+	}
+
+	private static void assertSane(SimulationReport report) {
+		assertTrue(report.getReads() > 0);
+		assertTrue(report.getRefreshPasses() > 0);
+		assertTrue(report.getRefreshThroughput() > 0);
+		assertTrue(report.getStalenessPercentile(50) <= report.getStalenessPercentile(99));
+		assertTrue(report.getPeakHeapBytes() >= report.getRetainedHeapBytes());
+	}
+}
@@ -0,0 +1,162 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fake remote service with configurable latency, random errors, error bursts
+ * and periodic outages. Counts the calls made by cache readers, on a cache
+ * miss, separately from those made while refreshing.
+ */
+public class UnstableRemote {
+
+	private final long startMillis = System.currentTimeMillis();
+
+	private final ThreadLocal<Boolean> readerThread = new ThreadLocal<Boolean>();
+
+	private final AtomicLong readerCalls = new AtomicLong();
+
+	private final AtomicLong refreshCalls = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	private final AtomicLong remainingBurstFailures = new AtomicLong();
+
+	private double baseLatencyMillis = 1;
+
+	private double meanJitterMillis = 0.5;
+
+	private double errorRate;
+
+	private double errorBurstRate;
+
+	private long errorBurstLength;
+
+	private long outagePeriodMillis;
+
+	private long outageDurationMillis;
+
+	/**
+	 * Fetches the current value of the key, after the configured latency.
+	 * 
+	 * @param key
+	 * @return
+	 * @throws IllegalStateException
+	 *             when the remote is failing
+	 */
+	public RemoteValue fetch(String key) {
+		if (Boolean.TRUE.equals(readerThread.get())) {
+			readerCalls.incrementAndGet();
+		} else {
+			refreshCalls.incrementAndGet();
+		}
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final double latencyMillis = baseLatencyMillis - meanJitterMillis * Math.log(1 - random.nextDouble());
+		LockSupport.parkNanos((long) (latencyMillis * TimeUnit.MILLISECONDS.toNanos(1)));
+		if (isFailing(random)) {
+			failures.incrementAndGet();
+			throw new IllegalStateException("Remote unavailable for " + key);
+		}
+		return new RemoteValue(key, System.currentTimeMillis());
+	}
+
+	private boolean isFailing(ThreadLocalRandom random) {
+		if (outagePeriodMillis > 0
+				&& (System.currentTimeMillis() - startMillis) % outagePeriodMillis < outageDurationMillis) {
+			return true;
+		}
+		if (remainingBurstFailures.get() > 0 && remainingBurstFailures.getAndDecrement() > 0) {
+			return true;
+		}
+		if (errorBurstRate > 0 && random.nextDouble() < errorBurstRate) {
+			remainingBurstFailures.set(errorBurstLength - 1);
+			return true;
+		}
+		return random.nextDouble() < errorRate;
+	}
+
+	/**
+	 * Marks the calling thread as a cache reader, whose remote calls are cache
+	 * misses rather than refreshes.
+	 */
+	void markReaderThread() {
+		readerThread.set(Boolean.TRUE);
+	}
+
+	public long getReaderCalls() {
+		return readerCalls.get();
+	}
+
+	public long getRefreshCalls() {
+		return refreshCalls.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @param baseLatencyMillis
+	 *            minimum latency of every call
+	 * @param meanJitterMillis
+	 *            mean of the exponentially distributed latency added to the
+	 *            minimum
+	 */
+	public void setLatency(double baseLatencyMillis, double meanJitterMillis) {
+		this.baseLatencyMillis = baseLatencyMillis;
+		this.meanJitterMillis = meanJitterMillis;
+	}
+
+	/**
+	 * @param errorRate
+	 *            probability of any single call failing
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @param errorBurstRate
+	 *            probability of a call starting a burst of failures
+	 * @param errorBurstLength
+	 *            number of consecutive calls failing in a burst
+	 */
+	public void setErrorBursts(double errorBurstRate, long errorBurstLength) {
+		this.errorBurstRate = errorBurstRate;
+		this.errorBurstLength = errorBurstLength;
+	}
+
+	/**
+	 * @param outagePeriodMillis
+	 *            interval between the start of two outages
+	 * @param outageDurationMillis
+	 *            time every call fails at the start of each period
+	 */
+	public void setOutages(long outagePeriodMillis, long outageDurationMillis) {
+		this.outagePeriodMillis = outagePeriodMillis;
+		this.outageDurationMillis = outageDurationMillis;
+	}
+
+	/**
+	 * Value served by the remote, stamped with the time it was fetched.
+	 */
+	public static final class RemoteValue {
+		private final String key;
+		private final long fetchedAtMillis;
+
+		RemoteValue(String key, long fetchedAtMillis) {
+			this.key = key;
+			this.fetchedAtMillis = fetchedAtMillis;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public long getFetchedAtMillis() {
+			return fetchedAtMillis;
+		}
+	}
+}
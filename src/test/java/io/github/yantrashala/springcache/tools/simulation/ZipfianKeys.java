@@ -0,0 +1,34 @@
+package io.github.yantrashala.springcache.tools.simulation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws keys with Zipfian popularity: the key of rank r is requested with a
+ * probability proportional to 1 / r^exponent.
+ */
+class ZipfianKeys {
+
+	private final String[] keys;
+
+	private final double[] cumulativeProbabilities;
+
+	ZipfianKeys(int keyCount, double exponent) {
+		keys = new String[keyCount];
+		cumulativeProbabilities = new double[keyCount];
+		double total = 0;
+		for (int rank = 0; rank < keyCount; rank++) {
+			keys[rank] = "key-" + rank;
+			total += 1 / Math.pow(rank + 1, exponent);
+			cumulativeProbabilities[rank] = total;
+		}
+		for (int rank = 0; rank < keyCount; rank++) {
+			cumulativeProbabilities[rank] /= total;
+		}
+	}
+
+	String next(Random random) {
+		final int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		return keys[Math.min(index >= 0 ? index : -index - 1, keys.length - 1)];
+	}
+}